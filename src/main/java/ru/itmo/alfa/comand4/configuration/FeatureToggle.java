@@ -13,6 +13,11 @@ public class FeatureToggle {
 
     private Morfology morfology;
     private Clustering clustering;
+    private Reduction reduction = new Reduction();
+    private Update update = new Update();
+    private Batch batch = new Batch();
+    private Cache cache = new Cache();
+    private Index index = new Index();
 
     @Getter
     @Setter
@@ -20,11 +25,139 @@ public class FeatureToggle {
         private Boolean steming;
         private Boolean stopwords;
         private Integer wordlenght;
+        private Vectorizer vectorizer = Vectorizer.VOCABULARY;
+        private Integer hashbits = 12;
+    }
+
+    /**
+     * Способ отображения терминов в признаки
+     */
+    public enum Vectorizer {
+        /** TF-IDF по словарю корпуса (не более 1000 самых частых слов) */
+        VOCABULARY,
+        /** Знаковое хэширование в пространство размерности 2^hashbits, без словаря */
+        HASHING
     }
 
     @Getter
     @Setter
     public static class Clustering {
         private Integer count;
+        private Precision precision = Precision.FLOAT64;
+        private Integer parallelism = 0;
+        private Engine engine = Engine.LLOYD;
+        private Integer batchsize = 256;
+        private Integer iterations = 300;
+        private Double tolerance = 1e-4;
+        private Long seed = 42L;
+    }
+
+    /**
+     * Алгоритм обучения KMeans
+     */
+    public enum Engine {
+        /** Полный проход по корпусу на каждой итерации (Smile) */
+        LLOYD,
+        /** Итерации по случайным батчам документов, без плотной копии корпуса */
+        MINIBATCH,
+        /** Сферический KMeans по косинусной близости на разреженных строках; уверенность - косинус */
+        SPHERICAL
+    }
+
+    /**
+     * Точность хранения матрицы признаков и центроидов
+     */
+    public enum Precision {
+        /** Значения double */
+        FLOAT64,
+        /** Значения float: вдвое меньше памяти, накопление сумм по-прежнему в double */
+        FLOAT32
+    }
+
+    @Getter
+    @Setter
+    public static class Reduction {
+        private ReductionMethod method = ReductionMethod.NONE;
+        private Integer dimension = 64;
+        private Long seed = 42L;
+    }
+
+    /**
+     * Понижение размерности признаков перед кластеризацией
+     */
+    public enum ReductionMethod {
+        /** Кластеризация в исходном пространстве признаков */
+        NONE,
+        /** Разреженная случайная проекция */
+        RANDOM,
+        /** Рандомизированный усечённый SVD */
+        SVD
+    }
+
+    @Getter
+    @Setter
+    public static class Update {
+        /**
+         * Скорость обучения центроидов, 0 - скользящее среднее (1 / размер кластера)
+         */
+        private Double decay = 0.0;
+        private Integer maxbatch = 1000;
+    }
+
+    @Getter
+    @Setter
+    public static class Batch {
+        /**
+         * Максимум заявок в одном пакетном запросе
+         */
+        private Integer maxsize = 1000;
+        /**
+         * Максимальная длина описания заявки в символах
+         */
+        private Integer maxlength = 10000;
+        /**
+         * Начиная с этого размера пакет оценивается параллельно на всех ядрах
+         */
+        private Integer parallelthreshold = 256;
+        /**
+         * Максимальная длина строки NDJSON при потоковой обработке
+         */
+        private Integer maxline = 65536;
+    }
+
+    @Getter
+    @Setter
+    public static class Cache {
+        private Boolean enabled = true;
+        /**
+         * Ограничение кэша ответов по примерному объёму записей в байтах
+         */
+        private Long maxbytes = 16L * 1024 * 1024;
+    }
+
+    @Getter
+    @Setter
+    public static class Index {
+        /**
+         * Число соседей вершины HNSW на верхних уровнях (на нулевом - вдвое больше)
+         */
+        private Integer m = 16;
+        /**
+         * Ширина поиска соседей при построении индекса
+         */
+        private Integer efconstruction = 200;
+        /**
+         * Ширина поиска при запросе: больше - выше полнота и задержка
+         */
+        private Integer efsearch = 64;
+        /**
+         * Количество похожих заявок в ответе
+         */
+        private Integer neighbors = 5;
+        private Long seed = 42L;
+        /**
+         * Запросов из корпуса для оценки полноты и задержки после построения, 0 - без оценки
+         */
+        private Integer benchmark = 0;
     }
 }
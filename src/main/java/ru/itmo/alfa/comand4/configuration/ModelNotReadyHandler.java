@@ -0,0 +1,28 @@
+package ru.itmo.alfa.comand4.configuration;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+import ru.itmo.alfa.comand4.core.service.ModelNotReadyException;
+
+import java.util.Map;
+
+/**
+ * Пока первая модель не обучена, запросы к API получают быстрый 503 с заголовком Retry-After
+ */
+@RestControllerAdvice
+public class ModelNotReadyHandler {
+
+    @Value("${model.retry-after:10}")
+    private int retryAfterSeconds;
+
+    @ExceptionHandler(ModelNotReadyException.class)
+    public ResponseEntity<Map<String, String>> handleModelNotReady(ModelNotReadyException e) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds))
+                .body(Map.of("error", e.getMessage()));
+    }
+}
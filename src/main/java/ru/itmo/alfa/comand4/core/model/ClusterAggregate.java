@@ -0,0 +1,117 @@
+package ru.itmo.alfa.comand4.core.model;
+
+import ru.itmo.alfa.comand4.core.dto.SupportTicket;
+
+import java.io.Serializable;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Накопленная статистика кластера: частоты слов, решений и категорий и сумма времени решения.
+ * <p>
+ * Изменяется только до публикации в {@link ClusterProfiles}; обновление опубликованного кластера
+ * идёт через {@link #copy()}.
+ */
+public class ClusterAggregate implements Serializable {
+
+    private final Map<String, Integer> wordFreq;
+    private final Map<String, Integer> solutionFreq;
+    private final Map<String, Long> categoryCount;
+    private long resolutionTimeSum;
+    private int tickets;
+
+    public ClusterAggregate() {
+        this(new HashMap<>(), new HashMap<>(), new HashMap<>(), 0, 0);
+    }
+
+    /**
+     * Восстановление статистики из снимка модели
+     */
+    public ClusterAggregate(Map<String, Integer> wordFreq, Map<String, Integer> solutionFreq,
+                            Map<String, Long> categoryCount, long resolutionTimeSum, int tickets) {
+        this.wordFreq = wordFreq;
+        this.solutionFreq = solutionFreq;
+        this.categoryCount = categoryCount;
+        this.resolutionTimeSum = resolutionTimeSum;
+        this.tickets = tickets;
+    }
+
+    /**
+     * @param words слова обращения после фильтра стоп-слов
+     */
+    public void add(SupportTicket ticket, List<String> words) {
+        // Анализируем проблемы
+        for (String word : words) {
+            wordFreq.merge(word, 1, Integer::sum);
+        }
+
+        // Разбиваем ответ из TechResponse на отдельные рекомендации
+        String[] solutions = ticket.getTechResponse().split("[,.;]\\s*");
+        for (String solution : solutions) {
+            String cleanSolution = solution.trim();
+            if (cleanSolution.length() > 10) {
+                solutionFreq.merge(cleanSolution, 1, Integer::sum);
+            }
+        }
+
+        categoryCount.merge(ticket.getIssueCategory(), 1L, Long::sum);
+        resolutionTimeSum += Integer.parseInt(ticket.getResolutionTime().split(" ")[0]);
+        tickets++;
+    }
+
+    /**
+     * Количество обращений, учтённых в кластере
+     */
+    public int tickets() {
+        return tickets;
+    }
+
+    public Map<String, Integer> wordFrequencies() {
+        return Collections.unmodifiableMap(wordFreq);
+    }
+
+    public Map<String, Integer> solutionFrequencies() {
+        return Collections.unmodifiableMap(solutionFreq);
+    }
+
+    public Map<String, Long> categoryCounts() {
+        return Collections.unmodifiableMap(categoryCount);
+    }
+
+    public long resolutionTimeSum() {
+        return resolutionTimeSum;
+    }
+
+    public ClusterAggregate copy() {
+        return new ClusterAggregate(new HashMap<>(wordFreq), new HashMap<>(solutionFreq),
+                new HashMap<>(categoryCount), resolutionTimeSum, tickets);
+    }
+
+    public ClusterProfile toProfile() {
+        List<String> commonIssues = wordFreq.entrySet().stream()
+                .sorted(Map.Entry.<String, Integer>comparingByValue().reversed())
+                .limit(8)
+                .map(Map.Entry::getKey)
+                .toList();
+
+        List<String> solutions = solutionFreq.entrySet().stream()
+                .sorted(Map.Entry.<String, Integer>comparingByValue().reversed())
+                .limit(5)
+                .map(Map.Entry::getKey)
+                .toList();
+
+        // Среднее время решения
+        int avgTime = tickets > 0 ? (int) ((double) resolutionTimeSum / tickets) : 60;
+
+        // Название категории. Форматируем: "Категория1(5), Категория2(3), ..."
+        String categoryName = categoryCount.entrySet().stream()
+                .sorted(Map.Entry.<String, Long>comparingByValue().reversed())
+                .map(entry -> String.format("%s(%d)", entry.getKey(), entry.getValue()))
+                .collect(Collectors.joining(", "));
+
+        return new ClusterProfile(categoryName, commonIssues, solutions, avgTime);
+    }
+}
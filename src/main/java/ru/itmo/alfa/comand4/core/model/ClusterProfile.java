@@ -1,16 +1,24 @@
 package ru.itmo.alfa.comand4.core.model;
 
-import lombok.AllArgsConstructor;
 import lombok.Getter;
 
+import java.io.Serializable;
 import java.util.List;
-import java.util.Set;
 
+/**
+ * Профиль кластера (неизменяемый): списки копируются при создании
+ */
 @Getter
-@AllArgsConstructor
-public class ClusterProfile {
-    private String categoryName;
-    private List<String> keywords;
-    private List<String> recommendedSolutions;
-    private int expectedResolutionTime;
-}
\ No newline at end of file
+public class ClusterProfile implements Serializable {
+    private final String categoryName;
+    private final List<String> keywords;
+    private final List<String> recommendedSolutions;
+    private final int expectedResolutionTime;
+
+    public ClusterProfile(String categoryName, List<String> keywords, List<String> recommendedSolutions, int expectedResolutionTime) {
+        this.categoryName = categoryName;
+        this.keywords = List.copyOf(keywords);
+        this.recommendedSolutions = List.copyOf(recommendedSolutions);
+        this.expectedResolutionTime = expectedResolutionTime;
+    }
+}
@@ -0,0 +1,46 @@
+package ru.itmo.alfa.comand4.core.model;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Неизменяемая база знаний о кластерах, входящая в снимок модели
+ */
+public class ClusterProfiles implements Serializable {
+
+    private static final ClusterProfile DEFAULT_PROFILE = new ClusterProfile(
+            "Общие проблемы",
+            List.of("error", "problem", "issue"),
+            Arrays.asList("Опишите проблему подробнее", "Проверьте базовые настройки"),
+            60
+    );
+
+    private final Map<Integer, ClusterProfile> profiles;
+    private final Map<Integer, ClusterAggregate> aggregates;
+
+    public ClusterProfiles(Map<Integer, ClusterProfile> profiles, Map<Integer, ClusterAggregate> aggregates) {
+        this.profiles = Map.copyOf(profiles);
+        this.aggregates = Map.copyOf(aggregates);
+    }
+
+    public ClusterProfile getProfile(int clusterId) {
+        return profiles.getOrDefault(clusterId, DEFAULT_PROFILE);
+    }
+
+    /**
+     * Статистика кластера (только для чтения; для изменения - {@link ClusterAggregate#copy()})
+     */
+    public ClusterAggregate getAggregate(int clusterId) {
+        return aggregates.get(clusterId);
+    }
+
+    public Map<Integer, ClusterProfile> profiles() {
+        return profiles;
+    }
+
+    public Map<Integer, ClusterAggregate> aggregates() {
+        return aggregates;
+    }
+}
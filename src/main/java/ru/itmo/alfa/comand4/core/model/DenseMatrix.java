@@ -0,0 +1,72 @@
+package ru.itmo.alfa.comand4.core.model;
+
+import ru.itmo.alfa.comand4.core.util.clustering.VectorKernels;
+
+import java.io.Serializable;
+
+/**
+ * Плотная матрица признаков (например, корпус после понижения размерности)
+ */
+public class DenseMatrix implements FeatureMatrix, Serializable {
+
+    private final int cols;
+    private final double[][] data;
+
+    public DenseMatrix(int cols, double[][] data) {
+        this.cols = cols;
+        this.data = data;
+    }
+
+    @Override
+    public int rows() {
+        return data.length;
+    }
+
+    @Override
+    public int cols() {
+        return cols;
+    }
+
+    @Override
+    public double dot(int row, double[] vector) {
+        return VectorKernels.dot(data[row], vector);
+    }
+
+    @Override
+    public double dot(int row, SparseMatrix query, int queryRow) {
+        return query.dot(queryRow, data[row]);
+    }
+
+    @Override
+    public double squaredNorm(int row) {
+        return VectorKernels.squaredNorm(data[row]);
+    }
+
+    @Override
+    public double squaredDistance(int a, int b) {
+        return VectorKernels.squaredDistance(data[a], data[b]);
+    }
+
+    @Override
+    public double squaredDistance(int row, double[] vector, double vectorSquaredNorm) {
+        return VectorKernels.squaredDistance(data[row], vector);
+    }
+
+    @Override
+    public void addTo(int row, double[] target, double scale) {
+        double[] values = data[row];
+        for (int j = 0; j < cols; j++) {
+            target[j] += values[j] * scale;
+        }
+    }
+
+    @Override
+    public double[] toDense(int row) {
+        return data[row].clone();
+    }
+
+    @Override
+    public long sizeInBytes() {
+        return 8L * cols * data.length;
+    }
+}
@@ -0,0 +1,122 @@
+package ru.itmo.alfa.comand4.core.model;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * Документные частоты терминов корпуса для расчёта IDF новых документов.
+ * <p>
+ * Таблица неизменяема и читается запросами без блокировок: инкрементальное обновление накапливает пакет
+ * в {@link Builder} (одна копия частот на пакет) и публикует результат {@link Builder#build} вместе с новым снимком модели.
+ * IDF считается по той же формуле, что и при обучении: log((N + 1) / (df + 1)) + 1.
+ */
+public class DocumentFrequencies implements Serializable {
+
+    private final int[] counts;
+    private final int documents;
+
+    public DocumentFrequencies(int[] counts, int documents) {
+        this.counts = counts;
+        this.documents = documents;
+    }
+
+    /**
+     * Таблица по матрице признаков корпуса: IDF > 0, поэтому ненулевые элементы TF-IDF совпадают с TF
+     */
+    public static DocumentFrequencies of(SparseMatrix features) {
+        return new DocumentFrequencies(features.columnCounts(), features.rows());
+    }
+
+    public int documents() {
+        return documents;
+    }
+
+    /**
+     * Размерность таблицы (количество столбцов пространства признаков)
+     */
+    public int columns() {
+        return counts.length;
+    }
+
+    public int count(int column) {
+        return counts[column];
+    }
+
+    public double idf(int column) {
+        return idf(counts, documents, column);
+    }
+
+    /**
+     * Изменяемая копия таблицы для пакета обновлений; текущая таблица не меняется
+     */
+    public Builder toBuilder() {
+        return new Builder(Arrays.copyOf(counts, counts.length), documents);
+    }
+
+    /**
+     * TF-IDF строка с L2 нормализацией; стоимость пропорциональна числу терминов документа
+     */
+    public SparseMatrix weight(SparseMatrix tf, int row) {
+        return weight(counts, documents, tf, row);
+    }
+
+    private static double idf(int[] counts, int documents, int column) {
+        return Math.log((double) (documents + 1) / (counts[column] + 1)) + 1;
+    }
+
+    private static SparseMatrix weight(int[] counts, int documents, SparseMatrix tf, int row) {
+        int from = tf.rowStart(row);
+        int length = tf.rowEnd(row) - from;
+        int[] columns = new int[length];
+        double[] values = new double[length];
+
+        double norm = 0.0;
+        for (int p = 0; p < length; p++) {
+            columns[p] = tf.column(from + p);
+            values[p] = tf.value(from + p) * idf(counts, documents, columns[p]);
+            norm += values[p] * values[p];
+        }
+        norm = Math.sqrt(norm);
+        if (norm > 0) {
+            for (int p = 0; p < length; p++) {
+                values[p] /= norm;
+            }
+        }
+
+        return new SparseMatrix(tf.cols(), new int[]{0, length}, columns, values);
+    }
+
+    /**
+     * Рабочая копия частот пакета обновлений: документы добавляются на месте, IDF учитывает уже добавленные.
+     * Принадлежит одному потоку и не публикуется; после {@link #build} не используется
+     */
+    public static class Builder {
+
+        private final int[] counts;
+        private int documents;
+
+        private Builder(int[] counts, int documents) {
+            this.counts = counts;
+            this.documents = documents;
+        }
+
+        /**
+         * Учитывает новый документ, заданный TF строкой
+         */
+        public Builder add(SparseMatrix tf, int row) {
+            for (int p = tf.rowStart(row); p < tf.rowEnd(row); p++) {
+                counts[tf.column(p)]++;
+            }
+            documents++;
+            return this;
+        }
+
+        public SparseMatrix weight(SparseMatrix tf, int row) {
+            return DocumentFrequencies.weight(counts, documents, tf, row);
+        }
+
+        public DocumentFrequencies build() {
+            return new DocumentFrequencies(counts, documents);
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package ru.itmo.alfa.comand4.core.model;
+
+/**
+ * Матрица признаков корпуса: строка - документ, столбец - термин словаря
+ */
+public interface FeatureMatrix {
+
+    /**
+     * Количество строк (документов)
+     */
+    int rows();
+
+    /**
+     * Размерность пространства признаков
+     */
+    int cols();
+
+    /**
+     * Скалярное произведение строки на плотный вектор
+     */
+    double dot(int row, double[] vector);
+
+    /**
+     * Скалярное произведение строки на строку разреженной матрицы (слиянием ненулевых элементов)
+     */
+    double dot(int row, SparseMatrix query, int queryRow);
+
+    /**
+     * Квадрат L2 нормы строки
+     */
+    double squaredNorm(int row);
+
+    /**
+     * Квадрат евклидова расстояния между двумя строками матрицы
+     */
+    double squaredDistance(int a, int b);
+
+    /**
+     * Квадрат евклидова расстояния между строкой и плотным вектором; для разреженных строк
+     * стоимость пропорциональна числу ненулевых элементов строки
+     *
+     * @param vectorSquaredNorm заранее посчитанный квадрат нормы vector (один раз на проход по корпусу)
+     */
+    double squaredDistance(int row, double[] vector, double vectorSquaredNorm);
+
+    /**
+     * Прибавляет строку, умноженную на scale, к плотному вектору target
+     */
+    void addTo(int row, double[] target, double scale);
+
+    /**
+     * Плотное представление одной строки
+     */
+    double[] toDense(int row);
+
+    /**
+     * Примерный объём памяти, занимаемый данными матрицы
+     */
+    long sizeInBytes();
+
+    /**
+     * Плотное представление всей матрицы (для библиотек, работающих только с double[][])
+     */
+    default double[][] toDense() {
+        double[][] dense = new double[rows()][];
+        for (int i = 0; i < dense.length; i++) {
+            dense[i] = toDense(i);
+        }
+        return dense;
+    }
+}
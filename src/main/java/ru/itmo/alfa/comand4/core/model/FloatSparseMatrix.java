@@ -0,0 +1,141 @@
+package ru.itmo.alfa.comand4.core.model;
+
+import ru.itmo.alfa.comand4.core.util.clustering.VectorKernels;
+
+import java.io.Serializable;
+
+/**
+ * CSR матрица с 32-битными значениями (режим float32).
+ * <p>
+ * Структура (rowPtr, colIdx) та же, что у {@link SparseMatrix}; значения TF-IDF хранятся во float,
+ * накопление сумм в расстояниях и скалярных произведениях идёт в double.
+ */
+public class FloatSparseMatrix implements FeatureMatrix, Serializable {
+
+    private final int cols;
+    private final int[] rowPtr;
+    private final int[] colIdx;
+    private final float[] values;
+
+    public FloatSparseMatrix(int cols, int[] rowPtr, int[] colIdx, float[] values) {
+        this.cols = cols;
+        this.rowPtr = rowPtr;
+        this.colIdx = colIdx;
+        this.values = values;
+    }
+
+    @Override
+    public int rows() {
+        return rowPtr.length - 1;
+    }
+
+    @Override
+    public int cols() {
+        return cols;
+    }
+
+    public int nnz() {
+        return rowPtr[rowPtr.length - 1];
+    }
+
+    public int rowStart(int row) {
+        return rowPtr[row];
+    }
+
+    public int rowEnd(int row) {
+        return rowPtr[row + 1];
+    }
+
+    public int column(int pos) {
+        return colIdx[pos];
+    }
+
+    public float value(int pos) {
+        return values[pos];
+    }
+
+    @Override
+    public double dot(int row, double[] vector) {
+        return VectorKernels.dot(colIdx, values, rowPtr[row], rowPtr[row + 1], vector);
+    }
+
+    @Override
+    public double dot(int row, SparseMatrix query, int queryRow) {
+        int pa = rowPtr[row];
+        int pb = query.rowStart(queryRow);
+        int toA = rowPtr[row + 1];
+        int toB = query.rowEnd(queryRow);
+        double sum = 0.0;
+
+        // Слияние двух отсортированных списков индексов
+        while (pa < toA && pb < toB) {
+            int ca = colIdx[pa];
+            int cb = query.column(pb);
+            if (ca == cb) {
+                sum += values[pa++] * query.value(pb++);
+            } else if (ca < cb) {
+                pa++;
+            } else {
+                pb++;
+            }
+        }
+        return sum;
+    }
+
+    @Override
+    public double squaredNorm(int row) {
+        double sum = 0.0;
+        for (int p = rowPtr[row]; p < rowPtr[row + 1]; p++) {
+            sum += (double) values[p] * values[p];
+        }
+        return sum;
+    }
+
+    @Override
+    public double squaredDistance(int a, int b) {
+        return VectorKernels.squaredDistance(
+                colIdx, values, rowPtr[a], rowPtr[a + 1],
+                colIdx, values, rowPtr[b], rowPtr[b + 1]
+        );
+    }
+
+    @Override
+    public double squaredDistance(int row, double[] vector, double vectorSquaredNorm) {
+        return VectorKernels.squaredDistance(
+                colIdx, values, rowPtr[row], rowPtr[row + 1],
+                vector, vectorSquaredNorm
+        );
+    }
+
+    @Override
+    public void addTo(int row, double[] target, double scale) {
+        for (int p = rowPtr[row]; p < rowPtr[row + 1]; p++) {
+            target[colIdx[p]] += values[p] * scale;
+        }
+    }
+
+    @Override
+    public double[] toDense(int row) {
+        double[] dense = new double[cols];
+        for (int p = rowPtr[row]; p < rowPtr[row + 1]; p++) {
+            dense[colIdx[p]] = values[p];
+        }
+        return dense;
+    }
+
+    @Override
+    public long sizeInBytes() {
+        return 4L * rowPtr.length + 4L * colIdx.length + 4L * values.length;
+    }
+
+    /**
+     * Та же матрица с 64-битными значениями
+     */
+    public SparseMatrix toDouble() {
+        double[] converted = new double[values.length];
+        for (int p = 0; p < values.length; p++) {
+            converted[p] = values[p];
+        }
+        return new SparseMatrix(cols, rowPtr, colIdx, converted);
+    }
+}
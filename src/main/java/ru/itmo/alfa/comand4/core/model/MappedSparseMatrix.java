@@ -0,0 +1,193 @@
+package ru.itmo.alfa.comand4.core.model;
+
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+
+/**
+ * CSR матрица только для чтения поверх отображённого в память файла снимка.
+ * <p>
+ * Массивы rowPtr, colIdx и значения не копируются в кучу: страницы читаются по требованию
+ * и разделяются через page cache ОС всеми процессами, отобразившими тот же файл.
+ * Значения хранятся в float64 или float32 (как в снимке); чтение только абсолютное, поэтому
+ * матрица безопасна для параллельного доступа.
+ */
+public class MappedSparseMatrix implements FeatureMatrix {
+
+    private final int cols;
+    private final IntBuffer rowPtr;
+    private final IntBuffer colIdx;
+    private final ByteBuffer values;
+    private final boolean float32;
+
+    public MappedSparseMatrix(int cols, IntBuffer rowPtr, IntBuffer colIdx, ByteBuffer values, boolean float32) {
+        this.cols = cols;
+        this.rowPtr = rowPtr;
+        this.colIdx = colIdx;
+        this.values = values;
+        this.float32 = float32;
+    }
+
+    @Override
+    public int rows() {
+        return rowPtr.limit() - 1;
+    }
+
+    @Override
+    public int cols() {
+        return cols;
+    }
+
+    public int nnz() {
+        return rowPtr.get(rowPtr.limit() - 1);
+    }
+
+    public boolean isFloat32() {
+        return float32;
+    }
+
+    public int rowStart(int row) {
+        return rowPtr.get(row);
+    }
+
+    public int rowEnd(int row) {
+        return rowPtr.get(row + 1);
+    }
+
+    public int column(int pos) {
+        return colIdx.get(pos);
+    }
+
+    public double value(int pos) {
+        return float32 ? values.getFloat(pos << 2) : values.getDouble(pos << 3);
+    }
+
+    @Override
+    public double dot(int row, double[] vector) {
+        double sum = 0.0;
+        for (int p = rowStart(row), end = rowEnd(row); p < end; p++) {
+            sum += value(p) * vector[colIdx.get(p)];
+        }
+        return sum;
+    }
+
+    @Override
+    public double dot(int row, SparseMatrix query, int queryRow) {
+        int pa = rowStart(row);
+        int pb = query.rowStart(queryRow);
+        int toA = rowEnd(row);
+        int toB = query.rowEnd(queryRow);
+        double sum = 0.0;
+
+        // Слияние двух отсортированных списков индексов
+        while (pa < toA && pb < toB) {
+            int ca = colIdx.get(pa);
+            int cb = query.column(pb);
+            if (ca == cb) {
+                sum += value(pa++) * query.value(pb++);
+            } else if (ca < cb) {
+                pa++;
+            } else {
+                pb++;
+            }
+        }
+        return sum;
+    }
+
+    @Override
+    public double squaredNorm(int row) {
+        double sum = 0.0;
+        for (int p = rowStart(row), end = rowEnd(row); p < end; p++) {
+            double value = value(p);
+            sum += value * value;
+        }
+        return sum;
+    }
+
+    @Override
+    public double squaredDistance(int a, int b) {
+        int pa = rowStart(a);
+        int pb = rowStart(b);
+        int toA = rowEnd(a);
+        int toB = rowEnd(b);
+        double sum = 0.0;
+
+        // Слияние двух отсортированных списков индексов
+        while (pa < toA && pb < toB) {
+            int ca = colIdx.get(pa);
+            int cb = colIdx.get(pb);
+            double diff;
+            if (ca == cb) {
+                diff = value(pa++) - value(pb++);
+            } else if (ca < cb) {
+                diff = value(pa++);
+            } else {
+                diff = value(pb++);
+            }
+            sum += diff * diff;
+        }
+        for (; pa < toA; pa++) {
+            double value = value(pa);
+            sum += value * value;
+        }
+        for (; pb < toB; pb++) {
+            double value = value(pb);
+            sum += value * value;
+        }
+        return sum;
+    }
+
+    @Override
+    public double squaredDistance(int row, double[] vector, double vectorSquaredNorm) {
+        // ||x - c||^2 = ||c||^2 + сумма по ненулевым x: (x_j - c_j)^2 - c_j^2
+        double sum = vectorSquaredNorm;
+        for (int p = rowStart(row), end = rowEnd(row); p < end; p++) {
+            double c = vector[colIdx.get(p)];
+            double diff = value(p) - c;
+            sum += diff * diff - c * c;
+        }
+        return Math.max(0.0, sum);
+    }
+
+    @Override
+    public void addTo(int row, double[] target, double scale) {
+        for (int p = rowStart(row), end = rowEnd(row); p < end; p++) {
+            target[colIdx.get(p)] += scale * value(p);
+        }
+    }
+
+    @Override
+    public double[] toDense(int row) {
+        double[] dense = new double[cols];
+        for (int p = rowStart(row), end = rowEnd(row); p < end; p++) {
+            dense[colIdx.get(p)] = value(p);
+        }
+        return dense;
+    }
+
+    /**
+     * Объём отображённых данных; память вне кучи, общая для процессов
+     */
+    @Override
+    public long sizeInBytes() {
+        return 4L * rowPtr.limit() + 4L * colIdx.limit() + values.limit();
+    }
+
+    /**
+     * Копия матрицы в куче (для алгоритмов, которым нужны массивы CSR)
+     */
+    public FeatureMatrix toHeap() {
+        int[] rowPtrCopy = new int[rowPtr.limit()];
+        int[] colIdxCopy = new int[colIdx.limit()];
+        rowPtr.get(0, rowPtrCopy);
+        colIdx.get(0, colIdxCopy);
+
+        if (float32) {
+            float[] valuesCopy = new float[colIdxCopy.length];
+            values.asFloatBuffer().get(0, valuesCopy);
+            return new FloatSparseMatrix(cols, rowPtrCopy, colIdxCopy, valuesCopy);
+        }
+        double[] valuesCopy = new double[colIdxCopy.length];
+        values.asDoubleBuffer().get(0, valuesCopy);
+        return new SparseMatrix(cols, rowPtrCopy, colIdxCopy, valuesCopy);
+    }
+}
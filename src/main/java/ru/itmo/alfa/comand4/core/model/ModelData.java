@@ -1,17 +1,75 @@
 package ru.itmo.alfa.comand4.core.model;
 
+import lombok.AccessLevel;
 import lombok.AllArgsConstructor;
 import lombok.Getter;
-import ru.itmo.alfa.comand4.core.util.clustering.ClusterProfiler;
+import lombok.With;
+import ru.itmo.alfa.comand4.core.dto.SupportTicket;
+import ru.itmo.alfa.comand4.core.util.clustering.CentroidScorer;
+import ru.itmo.alfa.comand4.core.util.morfology.TermIndex;
+import ru.itmo.alfa.comand4.core.util.search.HnswIndex;
 import smile.clustering.KMeans;
 
 import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
 
+/**
+ * Снимок модели. После публикации в {@link ru.itmo.alfa.comand4.core.service.ModelRegistry} не изменяется:
+ * обновления строят новый снимок (см. with-методы) и подменяют ссылку целиком
+ */
 @AllArgsConstructor
 @Getter
+@With
 public class ModelData {
+    /**
+     * Номер версии снимка, растёт при каждой публикации
+     */
+    public final long version;
     public final KMeans model;
-    public final List<String> vocabulary;
-    public final ClusterProfiler clusterProfiler;
-    public final double[][] features;
+    public final TermIndex vocabulary;
+    public final ClusterProfiles clusterProfiles;
+    public final FeatureMatrix features;
+    /**
+     * Центроиды во float32 для предсказания; null, если модель работает в double
+     */
+    public final float[][] centroids32;
+    /**
+     * Проекция в пространство меньшей размерности, применяемая к заявке перед предсказанием;
+     * null, если кластеризация идёт в исходном пространстве признаков
+     */
+    public final Projection projection;
+    /**
+     * Модель обучена сферическим KMeans: центроиды единичные, близость - косинус
+     */
+    public final boolean spherical;
+    /**
+     * Документные частоты корпуса: IDF для новых обращений при инкрементальном обновлении
+     */
+    public final DocumentFrequencies documentFrequencies;
+    /**
+     * Заявки корпуса в порядке строк матрицы признаков (ответы для поиска похожих заявок)
+     */
+    public final List<SupportTicket> tickets;
+    /**
+     * Индекс ближайших соседей по нормализованным TF-IDF строкам корпуса
+     */
+    public final HnswIndex ticketIndex;
+
+    /**
+     * Оценка заявок по центроидам снимка (нормы центроидов); строится один раз на снимок,
+     * копии снимка строят свою (поле не входит в конструктор и with-методы)
+     */
+    @Getter(AccessLevel.NONE)
+    private final AtomicReference<CentroidScorer> scorer = new AtomicReference<>();
+
+    public CentroidScorer scorer() {
+        CentroidScorer current = scorer.get();
+        if (current == null) {
+            current = CentroidScorer.of(model.centroids, centroids32, spherical);
+            if (!scorer.compareAndSet(null, current)) {
+                current = scorer.get();
+            }
+        }
+        return current;
+    }
 }
@@ -0,0 +1,132 @@
+package ru.itmo.alfa.comand4.core.model;
+
+import java.io.Serializable;
+
+/**
+ * Обученное линейное отображение пространства признаков в пространство меньшей размерности.
+ * <p>
+ * Весовая матрица хранится по входным столбцам (cols × dimension),
+ * поэтому проекция разреженной строки стоит O(nnz × dimension).
+ * Разреженная проекция (случайная) хранит только ненулевые веса столбцов в формате CSR:
+ * при хэшировании признаков в 2^24 столбцов плотная матрица заняла бы гигабайты.
+ */
+public class Projection implements Serializable {
+
+    private final String method;
+    private final int inputDimension;
+    private final int dimension;
+    /**
+     * Плотные веса (cols × dimension); null у разреженной проекции
+     */
+    private final double[][] weights;
+    /**
+     * Разреженные веса: для столбца j - позиции columnPtr[j]..columnPtr[j + 1] в targets и values
+     */
+    private final int[] columnPtr;
+    private final int[] targets;
+    private final double[] values;
+
+    public Projection(String method, double[][] weights, int dimension) {
+        this.method = method;
+        this.inputDimension = weights.length;
+        this.dimension = dimension;
+        this.weights = weights;
+        this.columnPtr = null;
+        this.targets = null;
+        this.values = null;
+    }
+
+    public Projection(String method, int dimension, int[] columnPtr, int[] targets, double[] values) {
+        this.method = method;
+        this.inputDimension = columnPtr.length - 1;
+        this.dimension = dimension;
+        this.weights = null;
+        this.columnPtr = columnPtr;
+        this.targets = targets;
+        this.values = values;
+    }
+
+    public String getMethod() {
+        return method;
+    }
+
+    /**
+     * Размерность исходного пространства признаков
+     */
+    public int inputDimension() {
+        return inputDimension;
+    }
+
+    public boolean isSparse() {
+        return weights == null;
+    }
+
+    /**
+     * Размерность пространства после проекции
+     */
+    public int dimension() {
+        return dimension;
+    }
+
+    /**
+     * Веса входного столбца (строка весовой матрицы) плотной проекции
+     */
+    public double[] weights(int column) {
+        return weights[column];
+    }
+
+    /**
+     * Массивы CSR разреженной проекции (только для чтения)
+     */
+    public int[] columnPtr() {
+        return columnPtr;
+    }
+
+    public int[] targets() {
+        return targets;
+    }
+
+    public double[] values() {
+        return values;
+    }
+
+    /**
+     * Проекция одной строки разреженной матрицы (TF строка заявки): O(nnz × dimension)
+     */
+    public double[] apply(SparseMatrix features, int row) {
+        double[] result = new double[dimension];
+        for (int p = features.rowStart(row); p < features.rowEnd(row); p++) {
+            addColumn(features.column(p), features.value(p), result);
+        }
+        return result;
+    }
+
+    /**
+     * Проекция всего корпуса
+     */
+    public DenseMatrix apply(SparseMatrix features) {
+        double[][] projected = new double[features.rows()][dimension];
+        for (int i = 0; i < features.rows(); i++) {
+            for (int p = features.rowStart(i); p < features.rowEnd(i); p++) {
+                addColumn(features.column(p), features.value(p), projected[i]);
+            }
+        }
+        return new DenseMatrix(dimension, projected);
+    }
+
+    /**
+     * target += scale × (веса входного столбца)
+     */
+    private void addColumn(int column, double scale, double[] target) {
+        if (weights != null) {
+            double[] row = weights[column];
+            for (int t = 0; t < target.length; t++) {
+                target[t] += scale * row[t];
+            }
+            return;
+        }
+        for (int p = columnPtr[column]; p < columnPtr[column + 1]; p++) {
+            target[targets[p]] += scale * values[p];
+        }
+    }
+}
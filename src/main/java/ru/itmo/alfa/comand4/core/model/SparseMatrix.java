@@ -0,0 +1,247 @@
+package ru.itmo.alfa.comand4.core.model;
+
+import ru.itmo.alfa.comand4.core.util.clustering.VectorKernels;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Разреженная матрица в формате CSR (compressed sparse row).
+ * <p>
+ * Строка i хранится в диапазоне [rowPtr[i], rowPtr[i + 1]) массивов colIdx и values,
+ * индексы столбцов внутри строки отсортированы по возрастанию.
+ * Память и время обхода пропорциональны количеству ненулевых элементов, а не rows × cols.
+ */
+public class SparseMatrix implements FeatureMatrix, Serializable {
+
+    private final int cols;
+    private final int[] rowPtr;
+    private final int[] colIdx;
+    private final double[] values;
+
+    public SparseMatrix(int cols, int[] rowPtr, int[] colIdx, double[] values) {
+        this.cols = cols;
+        this.rowPtr = rowPtr;
+        this.colIdx = colIdx;
+        this.values = values;
+    }
+
+    @Override
+    public int rows() {
+        return rowPtr.length - 1;
+    }
+
+    @Override
+    public int cols() {
+        return cols;
+    }
+
+    /**
+     * Количество ненулевых элементов
+     */
+    public int nnz() {
+        return rowPtr[rowPtr.length - 1];
+    }
+
+    public int rowStart(int row) {
+        return rowPtr[row];
+    }
+
+    public int rowEnd(int row) {
+        return rowPtr[row + 1];
+    }
+
+    public int column(int pos) {
+        return colIdx[pos];
+    }
+
+    public double value(int pos) {
+        return values[pos];
+    }
+
+    @Override
+    public double dot(int row, double[] vector) {
+        return VectorKernels.dot(colIdx, values, rowPtr[row], rowPtr[row + 1], vector);
+    }
+
+    @Override
+    public double dot(int row, SparseMatrix query, int queryRow) {
+        return VectorKernels.dot(
+                colIdx, values, rowPtr[row], rowPtr[row + 1],
+                query.colIdx, query.values, query.rowPtr[queryRow], query.rowPtr[queryRow + 1]
+        );
+    }
+
+    @Override
+    public double squaredNorm(int row) {
+        double sum = 0.0;
+        for (int p = rowPtr[row]; p < rowPtr[row + 1]; p++) {
+            sum += values[p] * values[p];
+        }
+        return sum;
+    }
+
+    @Override
+    public double squaredDistance(int a, int b) {
+        return VectorKernels.squaredDistance(
+                colIdx, values, rowPtr[a], rowPtr[a + 1],
+                colIdx, values, rowPtr[b], rowPtr[b + 1]
+        );
+    }
+
+    @Override
+    public double squaredDistance(int row, double[] vector, double vectorSquaredNorm) {
+        return VectorKernels.squaredDistance(
+                colIdx, values, rowPtr[row], rowPtr[row + 1],
+                vector, vectorSquaredNorm
+        );
+    }
+
+    @Override
+    public void addTo(int row, double[] target, double scale) {
+        for (int p = rowPtr[row]; p < rowPtr[row + 1]; p++) {
+            target[colIdx[p]] += values[p] * scale;
+        }
+    }
+
+    @Override
+    public double[] toDense(int row) {
+        double[] dense = new double[cols];
+        for (int p = rowPtr[row]; p < rowPtr[row + 1]; p++) {
+            dense[colIdx[p]] = values[p];
+        }
+        return dense;
+    }
+
+    @Override
+    public long sizeInBytes() {
+        return 4L * rowPtr.length + 4L * colIdx.length + 8L * values.length;
+    }
+
+    /**
+     * Та же матрица с 32-битными значениями (режим float32)
+     */
+    public FloatSparseMatrix toFloat() {
+        float[] converted = new float[values.length];
+        for (int p = 0; p < values.length; p++) {
+            converted[p] = (float) values[p];
+        }
+        return new FloatSparseMatrix(cols, rowPtr, colIdx, converted);
+    }
+
+    /**
+     * Количество строк, в которых столбец имеет ненулевое значение (document frequency)
+     */
+    public int[] columnCounts() {
+        int[] counts = new int[cols];
+        for (int p = 0; p < nnz(); p++) {
+            if (values[p] != 0) {
+                counts[colIdx[p]]++;
+            }
+        }
+        return counts;
+    }
+
+    /**
+     * Новая матрица с той же структурой, где каждый столбец j умножен на factors[j]
+     */
+    public SparseMatrix scaleColumns(double[] factors) {
+        double[] scaled = new double[values.length];
+        for (int p = 0; p < scaled.length; p++) {
+            scaled[p] = values[p] * factors[colIdx[p]];
+        }
+        return new SparseMatrix(cols, rowPtr, colIdx, scaled);
+    }
+
+    /**
+     * Новая матрица с той же структурой, строки которой нормализованы по L2 норме
+     */
+    public SparseMatrix normalizeRows() {
+        double[] normalized = Arrays.copyOf(values, values.length);
+        for (int i = 0; i < rows(); i++) {
+            double norm = Math.sqrt(squaredNorm(i));
+            if (norm > 0) {
+                for (int p = rowPtr[i]; p < rowPtr[i + 1]; p++) {
+                    normalized[p] /= norm;
+                }
+            }
+        }
+        return new SparseMatrix(cols, rowPtr, colIdx, normalized);
+    }
+
+    /**
+     * Вертикальное объединение блоков строк с одинаковым количеством столбцов
+     */
+    public static SparseMatrix concat(int cols, List<SparseMatrix> blocks) {
+        int rows = blocks.stream().mapToInt(SparseMatrix::rows).sum();
+        int nnz = blocks.stream().mapToInt(SparseMatrix::nnz).sum();
+
+        int[] rowPtr = new int[rows + 1];
+        int[] colIdx = new int[nnz];
+        double[] values = new double[nnz];
+
+        int row = 0;
+        int offset = 0;
+        for (SparseMatrix block : blocks) {
+            for (int i = 0; i < block.rows(); i++) {
+                rowPtr[++row] = offset + block.rowPtr[i + 1];
+            }
+            System.arraycopy(block.colIdx, 0, colIdx, offset, block.nnz());
+            System.arraycopy(block.values, 0, values, offset, block.nnz());
+            offset += block.nnz();
+        }
+
+        return new SparseMatrix(cols, rowPtr, colIdx, values);
+    }
+
+    /**
+     * Построчная сборка CSR матрицы
+     */
+    public static class Builder {
+
+        private final int cols;
+        private int rows = 0;
+        private int[] rowPtr = new int[16];
+        private int[] colIdx = new int[64];
+        private double[] values = new double[64];
+
+        public Builder(int cols) {
+            this.cols = cols;
+        }
+
+        /**
+         * Добавляет строку; индексы столбцов должны быть отсортированы по возрастанию
+         */
+        public Builder addRow(int[] columns, double[] rowValues, int length) {
+            int start = rowPtr[rows];
+            ensureCapacity(start + length);
+            System.arraycopy(columns, 0, colIdx, start, length);
+            System.arraycopy(rowValues, 0, values, start, length);
+
+            if (rows + 2 > rowPtr.length) {
+                rowPtr = Arrays.copyOf(rowPtr, rowPtr.length * 2);
+            }
+            rowPtr[++rows] = start + length;
+            return this;
+        }
+
+        public SparseMatrix build() {
+            int nnz = rowPtr[rows];
+            return new SparseMatrix(
+                    cols,
+                    Arrays.copyOf(rowPtr, rows + 1),
+                    Arrays.copyOf(colIdx, nnz),
+                    Arrays.copyOf(values, nnz)
+            );
+        }
+
+        private void ensureCapacity(int size) {
+            if (size > colIdx.length) {
+                int capacity = Math.max(size, colIdx.length * 2);
+                colIdx = Arrays.copyOf(colIdx, capacity);
+                values = Arrays.copyOf(values, capacity);
+            }
+        }
+    }
+}
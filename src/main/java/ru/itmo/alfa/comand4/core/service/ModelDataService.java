@@ -1,21 +1,44 @@
 package ru.itmo.alfa.comand4.core.service;
 
 import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 import ru.itmo.alfa.comand4.configuration.FeatureToggle;
 import ru.itmo.alfa.comand4.core.util.clustering.ClusterCounting;
+import ru.itmo.alfa.comand4.core.model.ClusterProfiles;
+import ru.itmo.alfa.comand4.core.model.DocumentFrequencies;
+import ru.itmo.alfa.comand4.core.model.FeatureMatrix;
+import ru.itmo.alfa.comand4.core.model.Projection;
+import ru.itmo.alfa.comand4.core.util.clustering.DimensionReduction;
+import ru.itmo.alfa.comand4.core.util.clustering.MiniBatchKMeans;
+import ru.itmo.alfa.comand4.core.util.clustering.SphericalKMeans;
+import ru.itmo.alfa.comand4.core.model.SparseMatrix;
+import ru.itmo.alfa.comand4.core.util.clustering.VectorKernels;
 import ru.itmo.alfa.comand4.core.util.source.CsvReader;
+import ru.itmo.alfa.comand4.core.util.morfology.FeatureHasher;
+import ru.itmo.alfa.comand4.core.util.morfology.TermIndex;
 import ru.itmo.alfa.comand4.core.util.morfology.Vocabulary;
+import ru.itmo.alfa.comand4.core.util.search.HnswIndex;
 import ru.itmo.alfa.comand4.core.model.ModelData;
 import ru.itmo.alfa.comand4.core.util.clustering.ClusterProfiler;
 import ru.itmo.alfa.comand4.core.dto.SupportTicket;
 import ru.itmo.alfa.comand4.core.util.morfology.VectorizeText;
+import ru.itmo.alfa.comand4.core.util.serial.ModelSerializer;
+import ru.itmo.alfa.comand4.core.util.serial.SnapshotCache;
 import smile.clustering.KMeans;
 
 import java.io.FileNotFoundException;
 import java.io.FileReader;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
 
 @Component
 public class ModelDataService {
@@ -29,18 +52,158 @@ public class ModelDataService {
     @Value("${datasource.csv.filepath}")
     private String filePath;
 
-    public ModelDataService(FeatureToggle feature, Vocabulary vocabularyService, VectorizeText vectorizer, ClusterProfiler clusterProfiler) {
+    /**
+     * Файл снимка модели; пусто - модель живёт только в куче процесса
+     */
+    @Value("${model.snapshot.file:}")
+    private String snapshotFile;
+
+    /**
+     * Каталог снимков по отпечатку CSV и настроек; пусто - кэш не используется
+     */
+    @Value("${model.cache.dir:}")
+    private String cacheDir;
+
+    /**
+     * Сколько последних использованных снимков хранить в каталоге кэша
+     */
+    @Value("${model.cache.keep:4}")
+    private int cacheKeep;
+
+    private final ModelRegistry modelRegistry;
+
+    /**
+     * Фоновое переобучение: один поток, чтобы одновременно строилась не более чем одна модель
+     */
+    private final ExecutorService retrainExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "model-retrain");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final AtomicReference<CompletableFuture<ModelData>> retraining = new AtomicReference<>();
+    /**
+     * Общая точка согласования начала переобучения и инкрементальных обновлений (см. {@link #withoutRetraining})
+     */
+    private final Object retrainLock = new Object();
+
+    public ModelDataService(FeatureToggle feature, Vocabulary vocabularyService, VectorizeText vectorizer, ClusterProfiler clusterProfiler,
+                            ModelRegistry modelRegistry) {
         this.feature = feature;
 
         this.vocabularyService = vocabularyService;
         this.vectorizer = vectorizer;
         this.clusterProfiler = clusterProfiler;
+        this.modelRegistry = modelRegistry;
     }
 
-    ModelData modelData;
+    /**
+     * Ошибка последнего обучения; null, если оно завершилось успешно или ещё идёт
+     */
+    private volatile Throwable failure;
 
+    /**
+     * Первая модель обучается в фоне: веб-сервер, health и метрики доступны сразу,
+     * API модели отвечает 503 до публикации снимка (см. {@link ModelRegistry#require()})
+     */
     @PostConstruct
-    protected void init() throws FileNotFoundException {
+    protected void init() {
+        // Готовый снимок отображается в память без разбора CSV и обучения
+        try {
+            long start = System.nanoTime();
+            Path snapshot = snapshotPath();
+            if (snapshot != null && Files.exists(snapshot)) {
+                modelRegistry.publish(ModelSerializer.map(snapshot));
+                if (snapshotFile.isBlank()) {
+                    SnapshotCache.touch(snapshot);
+                }
+                System.out.printf("Модель отображена из снимка %s за %d мс%n",
+                        snapshot, (System.nanoTime() - start) / 1_000_000);
+                return;
+            }
+        } catch (IOException e) {
+            System.err.println("Снимок модели не прочитан, модель будет обучена заново: " + e.getMessage());
+        }
+        retrainAsync();
+    }
+
+    @PreDestroy
+    protected void shutdown() {
+        retrainExecutor.shutdownNow();
+    }
+
+    /**
+     * Переобучение в фоне с атомарной подменой снимка по завершении.
+     * Запросы продолжают обслуживаться текущей моделью; повторный вызов во время обучения возвращает то же обучение.
+     * Модель обучается по CSV заново, поэтому инкрементальные обновления во время обучения отклоняются
+     * (см. {@link #withoutRetraining}), а не теряются при подмене. Снимок, который заменит обучение, запоминается
+     * при его начале, и результат публикуется только вместо него
+     */
+    public CompletableFuture<ModelData> retrainAsync() {
+        CompletableFuture<ModelData> future;
+        ModelData base;
+        synchronized (retrainLock) {
+            CompletableFuture<ModelData> running = retraining.get();
+            if (running != null && !running.isDone()) {
+                return running;
+            }
+            future = new CompletableFuture<>();
+            retraining.set(future);
+            base = modelRegistry.current();
+        }
+
+        retrainExecutor.execute(() -> {
+            try {
+                long start = System.nanoTime();
+                ModelData modelData = train();
+                Path snapshot = snapshotPath();
+                if (snapshot != null) {
+                    modelData = writeSnapshot(modelData, snapshot);
+                }
+                ModelData published = modelRegistry.publish(base, modelData);
+                if (published == null) {
+                    throw new IllegalStateException("Снимок модели сменился во время переобучения, результат не опубликован");
+                }
+                failure = null;
+                System.out.printf("Обучение модели заняло %d мс%n", (System.nanoTime() - start) / 1_000_000);
+                future.complete(published);
+            } catch (Throwable e) {
+                // В том числе OutOfMemoryError: незавершённое обучение навсегда блокировало бы обновления
+                System.err.println("Ошибка обучения модели: " + e);
+                failure = e;
+                future.completeExceptionally(e);
+            }
+        });
+        return future;
+    }
+
+    public Throwable getFailure() {
+        return failure;
+    }
+
+    public boolean isRetraining() {
+        CompletableFuture<ModelData> running = retraining.get();
+        return running != null && !running.isDone();
+    }
+
+    /**
+     * Действие над опубликованной моделью (инкрементальное обновление), во время которого переобучение не начинается:
+     * обновление либо публикуется до начала обучения, либо отклоняется, но не теряется при подмене снимка
+     *
+     * @throws IllegalStateException идёт переобучение
+     */
+    public <T> T withoutRetraining(Supplier<T> action) {
+        synchronized (retrainLock) {
+            if (isRetraining()) {
+                throw new IllegalStateException("Идёт переобучение модели, обновление не применено: повторите после публикации новой модели");
+            }
+            return action.get();
+        }
+    }
+
+    /**
+     * Полное обучение модели по CSV; результат - новый снимок, ещё не опубликованный (версия присваивается при публикации)
+     */
+    public ModelData train() throws FileNotFoundException {
         // Загрузка данных из файла
         List<SupportTicket> tickets = CsvReader.getAllTicket(new FileReader(filePath));
 
@@ -49,29 +212,168 @@ public class ModelDataService {
                 .map(t -> t.getCustomerIssue())
                 .toList();
 
-        // Создание словаря
-        List<String> vocabulary = vocabularyService.getVocabulary(documents);
+        // Токенизация (один раз и параллельно для всего корпуса)
+        List<List<String>> tokens = vocabularyService.tokenize(documents);
+
+        // Создание словаря (при хэшировании признаков словарь не строится)
+        TermIndex vocabulary;
+        if (feature.getMorfology().getVectorizer() == FeatureToggle.Vectorizer.HASHING)
+            vocabulary = new FeatureHasher(feature.getMorfology().getHashbits());
+        else
+            vocabulary = vocabularyService.buildVocabulary(tokens);
 
         // Векторизация
-        double[][] features = vectorizer.vectorize(documents, vocabulary);
+        SparseMatrix tfidf = vectorizer.vectorizeTokens(tokens, vocabulary);
 
-        // Задаём количество кластеров
+        // Понижение размерности (проекция сохраняется в модели и применяется к новым заявкам)
+        Projection projection = fitProjection(tfidf);
+
+        // В режиме float32 дальше работаем только с округлёнными значениями
+        boolean float32 = feature.getClustering().getPrecision() == FeatureToggle.Precision.FLOAT32;
+        FeatureMatrix features;
+        if (projection != null)
+            features = projection.apply(tfidf);
+        else
+            features = float32 ? tfidf.toFloat() : tfidf;
+
+        FeatureToggle.Clustering clustering = feature.getClustering();
+        FeatureToggle.Engine engine = resolveEngine(clustering.getEngine(), projection);
+        boolean miniBatch = engine == FeatureToggle.Engine.MINIBATCH;
+        boolean spherical = engine == FeatureToggle.Engine.SPHERICAL;
+
+        // Задаём количество кластеров (перебор работает на матрице признаков без плотной копии)
         int optimalK = 0;
-        if (feature.getClustering().getCount() > 0)
-            optimalK = feature.getClustering().getCount();
+        if (clustering.getCount() > 0)
+            optimalK = clustering.getCount();
         else
-            optimalK = ClusterCounting.findOptimalK(features);
+            optimalK = ClusterCounting.findOptimalK(features, clustering.getParallelism(), clustering.getSeed());
         // Кластеризация
-        KMeans model = KMeans.fit(features, optimalK, 100, 1e-4);
+        KMeans model;
+        if (miniBatch)
+            model = MiniBatchKMeans.fit(features, optimalK, clustering.getBatchsize(), clustering.getIterations(),
+                    clustering.getTolerance(), clustering.getSeed());
+        else if (spherical)
+            model = SphericalKMeans.fit(features, optimalK, clustering.getIterations(), clustering.getTolerance(),
+                    clustering.getSeed());
+        else
+            // Smile KMeans работает только с плотной матрицей: она живёт лишь на время вызова
+            model = KMeans.fit(features.toDense(), optimalK, 100, 1e-4);
 
         // Создание Базы Знаний о кластерах
         int[] clusterAssignments = model.y; // Получаем назначения кластеров
-        clusterProfiler.buildFromTickets(tickets, clusterAssignments);
+        ClusterProfiles clusterProfiles = clusterProfiler.buildFromTickets(tickets, tokens, clusterAssignments);
 
-        this.modelData = new ModelData(model, vocabulary, clusterProfiler, features);
+        float[][] centroids32 = float32 ? VectorKernels.toFloat(model.centroids) : null;
+        System.out.printf("Матрица признаков: %s, %d байт%n",
+                feature.getClustering().getPrecision(), features.sizeInBytes());
+
+        // Индекс похожих заявок по TF-IDF (без проекции: ближайшие по тексту, а не по кластерному пространству).
+        // Без понижения размерности это сама матрица признаков, иначе - одна копия TF-IDF в настроенной точности;
+        // матрица tfidf в double после обучения не удерживается
+        FeatureMatrix indexVectors = projection == null ? features : float32 ? tfidf.toFloat() : tfidf;
+        DocumentFrequencies documentFrequencies = DocumentFrequencies.of(tfidf);
+        HnswIndex ticketIndex = buildTicketIndex(indexVectors, documentFrequencies);
+
+        return new ModelData(0, model, vocabulary, clusterProfiles, features, centroids32, projection, spherical,
+                documentFrequencies, tickets, ticketIndex);
     }
 
-    public ModelData getModelData() {
-        return modelData;
+    /**
+     * Алгоритм обучения с учётом пространства признаков: Smile (lloyd) требует плотную матрицу n × 2^hashbits,
+     * поэтому при хэшировании признаков без понижения размерности вместо него обучается mini-batch KMeans
+     */
+    private FeatureToggle.Engine resolveEngine(FeatureToggle.Engine engine, Projection projection) {
+        if (engine == FeatureToggle.Engine.LLOYD && projection == null
+                && feature.getMorfology().getVectorizer() == FeatureToggle.Vectorizer.HASHING) {
+            System.out.println("Хэширование признаков без понижения размерности: вместо lloyd используется minibatch");
+            return FeatureToggle.Engine.MINIBATCH;
+        }
+        return engine;
+    }
+
+    private HnswIndex buildTicketIndex(FeatureMatrix vectors, DocumentFrequencies frequencies) {
+        FeatureToggle.Index settings = feature.getIndex();
+        long start = System.nanoTime();
+        HnswIndex index = HnswIndex.build(vectors, frequencies, settings.getM(), settings.getEfconstruction(), settings.getSeed());
+        System.out.printf("Индекс HNSW (m=%d, efConstruction=%d): %d заявок за %d мс%n",
+                settings.getM(), settings.getEfconstruction(), index.size(), (System.nanoTime() - start) / 1_000_000);
+
+        int k = settings.getNeighbors();
+        index.benchmark(k, settings.getBenchmark(), new int[]{k, 2 * k, 4 * k, settings.getEfsearch(), 4 * settings.getEfsearch()},
+                settings.getSeed());
+        return index;
+    }
+
+    /**
+     * Запись снимка обученной модели и переход на его отображение в память: матрица признаков
+     * из кучи освобождается, процессы с тем же файлом снимка делят его страницы
+     */
+    private ModelData writeSnapshot(ModelData modelData, Path path) {
+        try {
+            ModelSerializer.save(modelData, path, true);
+            if (snapshotFile.isBlank()) {
+                SnapshotCache.evict(path.getParent(), cacheKeep);
+            }
+            return ModelSerializer.map(path);
+        } catch (IOException e) {
+            System.err.println("Ошибка записи снимка модели: " + e.getMessage());
+            return modelData;
+        }
+    }
+
+    /**
+     * Файл снимка: явно заданный или снимок в кэше, соответствующий текущему CSV и настройкам
+     */
+    private Path snapshotPath() throws IOException {
+        if (!snapshotFile.isBlank())
+            return Path.of(snapshotFile);
+        if (cacheDir.isBlank())
+            return null;
+        return SnapshotCache.resolve(Path.of(cacheDir), Path.of(filePath), trainingSettings());
+    }
+
+    /**
+     * Настройки, влияющие на результат обучения (часть отпечатка снимка в кэше)
+     */
+    private String trainingSettings() {
+        FeatureToggle.Morfology morfology = feature.getMorfology();
+        FeatureToggle.Clustering clustering = feature.getClustering();
+        FeatureToggle.Reduction reduction = feature.getReduction();
+        FeatureToggle.Index index = feature.getIndex();
+        return String.join(";",
+                "steming=" + morfology.getSteming(),
+                "stopwords=" + morfology.getStopwords(),
+                "wordlenght=" + morfology.getWordlenght(),
+                "vectorizer=" + morfology.getVectorizer(),
+                "hashbits=" + morfology.getHashbits(),
+                "count=" + clustering.getCount(),
+                "precision=" + clustering.getPrecision(),
+                "engine=" + clustering.getEngine(),
+                "batchsize=" + clustering.getBatchsize(),
+                "iterations=" + clustering.getIterations(),
+                "tolerance=" + clustering.getTolerance(),
+                "seed=" + clustering.getSeed(),
+                "reduction=" + reduction.getMethod(),
+                "dimension=" + reduction.getDimension(),
+                "reductionSeed=" + reduction.getSeed(),
+                "indexM=" + index.getM(),
+                "efConstruction=" + index.getEfconstruction(),
+                "indexSeed=" + index.getSeed());
+    }
+
+    private Projection fitProjection(SparseMatrix features) {
+        FeatureToggle.Reduction reduction = feature.getReduction();
+        if (reduction.getMethod() == FeatureToggle.ReductionMethod.NONE)
+            return null;
+
+        long start = System.nanoTime();
+        Projection projection = switch (reduction.getMethod()) {
+            case RANDOM -> DimensionReduction.randomProjection(features.cols(), reduction.getDimension(), reduction.getSeed());
+            case SVD -> DimensionReduction.truncatedSvd(features, reduction.getDimension(), reduction.getSeed());
+            case NONE -> throw new IllegalStateException();
+        };
+        System.out.printf("Понижение размерности (%s): %d -> %d за %d мс%n",
+                projection.getMethod(), features.cols(), projection.dimension(), (System.nanoTime() - start) / 1_000_000);
+        return projection;
     }
 }
@@ -0,0 +1,35 @@
+package ru.itmo.alfa.comand4.core.service;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.stereotype.Component;
+import ru.itmo.alfa.comand4.core.model.ModelData;
+
+/**
+ * Состояние модели для /actuator/health: входит в группу readiness, liveness от него не зависит
+ */
+@Component("model")
+@RequiredArgsConstructor
+public class ModelHealthIndicator implements HealthIndicator {
+
+    private final ModelRegistry modelRegistry;
+    private final ModelDataService modelDataService;
+
+    @Override
+    public Health health() {
+        ModelData modelData = modelRegistry.current();
+        if (modelData != null) {
+            return Health.up()
+                    .withDetail("version", modelData.getVersion())
+                    .withDetail("retraining", modelDataService.isRetraining())
+                    .build();
+        }
+
+        Throwable failure = modelDataService.getFailure();
+        if (failure != null) {
+            return Health.down().withDetail("error", String.valueOf(failure.getMessage())).build();
+        }
+        return Health.outOfService().withDetail("state", "training").build();
+    }
+}
@@ -0,0 +1,11 @@
+package ru.itmo.alfa.comand4.core.service;
+
+/**
+ * Первая модель ещё обучается (или обучение завершилось ошибкой): запрос нельзя обслужить
+ */
+public class ModelNotReadyException extends RuntimeException {
+
+    public ModelNotReadyException(String message) {
+        super(message);
+    }
+}
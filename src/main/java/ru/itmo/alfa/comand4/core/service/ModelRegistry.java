@@ -0,0 +1,72 @@
+package ru.itmo.alfa.comand4.core.service;
+
+import org.springframework.stereotype.Component;
+import ru.itmo.alfa.comand4.core.model.ModelData;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Реестр текущего снимка модели.
+ * <p>
+ * Читатели берут снимок один раз на запрос через {@link #current()} и работают с ним без блокировок;
+ * переобучение и инкрементальные обновления публикуют новый неизменяемый снимок атомарной подменой ссылки.
+ * Номер версии присваивается при публикации, поэтому версии опубликованных снимков только растут.
+ */
+@Component
+public class ModelRegistry {
+
+    private final AtomicReference<ModelData> current = new AtomicReference<>();
+    private final AtomicLong versions = new AtomicLong();
+
+    /**
+     * Текущий снимок модели или null, если модель ещё не обучена
+     */
+    public ModelData current() {
+        return current.get();
+    }
+
+    /**
+     * Текущий снимок модели
+     *
+     * @throws ModelNotReadyException если первая модель ещё не опубликована
+     */
+    public ModelData require() {
+        ModelData modelData = current.get();
+        if (modelData == null) {
+            throw new ModelNotReadyException("Модель ещё обучается, повторите запрос позже");
+        }
+        return modelData;
+    }
+
+    /**
+     * Публикация снимка, заменяющего любой текущий (снимок из файла при запуске),
+     * через {@link #publish(ModelData, ModelData)}
+     *
+     * @return опубликованный снимок с присвоенной версией
+     */
+    public ModelData publish(ModelData modelData) {
+        ModelData published;
+        do {
+            published = publish(current.get(), modelData);
+        } while (published == null);
+        return published;
+    }
+
+    /**
+     * Публикация снимка, построенного из expected; не выполняется, если за это время снимок сменился.
+     * Версия берётся непосредственно перед подменой: снимок, опубликованный позже, всегда имеет большую версию
+     *
+     * @return опубликованный снимок с присвоенной версией или null, если текущий снимок уже не expected
+     */
+    public ModelData publish(ModelData expected, ModelData modelData) {
+        ModelData versioned = modelData.withVersion(versions.incrementAndGet());
+        // Нормы центроидов считаются до публикации, а не на первом запросе
+        versioned.scorer();
+        if (!current.compareAndSet(expected, versioned)) {
+            return null;
+        }
+        System.out.printf("Опубликована модель версии %d%n", versioned.getVersion());
+        return versioned;
+    }
+}
@@ -0,0 +1,204 @@
+package ru.itmo.alfa.comand4.core.util.clustering;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import ru.itmo.alfa.comand4.core.model.FeatureMatrix;
+import ru.itmo.alfa.comand4.core.model.SparseMatrix;
+
+import java.util.Arrays;
+
+/**
+ * Оценка заявки по центроидам модели за один проход по ненулевым элементам заявки.
+ * <p>
+ * Квадраты норм центроидов считаются один раз при создании, расстояние до центроида -
+ * ||x||^2 - 2 x·c + ||c||^2, поэтому стоимость оценки O(k × nnz) вместо O(k × V).
+ * Для сферической модели (единичные центроиды) та же сумма x·c даёт косинусную близость.
+ * В режиме float32 используются центроиды float32, а значения заявки округляются до float,
+ * как при обучении; накопление сумм - в double.
+ * <p>
+ * Лучшие кандидаты отбираются в том же проходе по центроидам: куча из top элементов (минимальный
+ * в корне) вытесняет худшего кандидата, стоимость O(k × log top) без сортировки всех центроидов.
+ */
+public final class CentroidScorer {
+
+    private final double[][] centroids;
+    private final float[][] centroids32;
+    private final double[] squaredNorms;
+    private final boolean spherical;
+
+    private CentroidScorer(double[][] centroids, float[][] centroids32, double[] squaredNorms, boolean spherical) {
+        this.centroids = centroids;
+        this.centroids32 = centroids32;
+        this.squaredNorms = squaredNorms;
+        this.spherical = spherical;
+    }
+
+    /**
+     * @param centroids32 центроиды float32 или null
+     */
+    public static CentroidScorer of(double[][] centroids, float[][] centroids32, boolean spherical) {
+        // Сферическая модель всегда оценивается по центроидам double, как при обучении
+        float[][] used32 = spherical ? null : centroids32;
+        double[] squaredNorms = new double[centroids.length];
+        for (int c = 0; c < centroids.length; c++) {
+            squaredNorms[c] = used32 != null
+                    ? VectorKernels.dot(used32[c], used32[c])
+                    : VectorKernels.squaredNorm(centroids[c]);
+        }
+        return new CentroidScorer(centroids, used32, squaredNorms, spherical);
+    }
+
+    /**
+     * Кластер и уверенность для строки заявки
+     */
+    public Prediction predict(FeatureMatrix query, int row) {
+        return predict(query, row, 1);
+    }
+
+    /**
+     * Кластер, уверенность, top лучших кандидатов и отрыв лучшего кластера от второго
+     *
+     * @param top число кандидатов (ограничивается числом кластеров)
+     */
+    public Prediction predict(FeatureMatrix query, int row, int top) {
+        // Строка заявки читается на месте; копия нужна только плотной заявке в режиме float32
+        SparseMatrix sparse = centroids32 != null && query instanceof SparseMatrix matrix ? matrix : null;
+        float[] dense32 = centroids32 != null && sparse == null ? VectorKernels.toFloat(query.toDense(row)) : null;
+        double squaredNorm;
+        if (sparse != null) {
+            squaredNorm = 0.0;
+            for (int p = sparse.rowStart(row), end = sparse.rowEnd(row); p < end; p++) {
+                double value = (float) sparse.value(p);
+                squaredNorm += value * value;
+            }
+        } else if (dense32 != null) {
+            squaredNorm = VectorKernels.dot(dense32, dense32);
+        } else {
+            squaredNorm = query.squaredNorm(row);
+        }
+
+        // Для отрыва нужны минимум два кандидата
+        int capacity = Math.min(centroids.length, Math.max(2, top));
+        int[] heapIds = new int[capacity];
+        double[] heapScores = new double[capacity];
+        int size = 0;
+
+        for (int c = 0; c < centroids.length; c++) {
+            double dot;
+            if (sparse != null) {
+                dot = dot(sparse, row, centroids32[c]);
+            } else if (dense32 != null) {
+                dot = VectorKernels.dot(dense32, centroids32[c]);
+            } else {
+                dot = query.dot(row, centroids[c]);
+            }
+
+            // Сферическая модель: максимум x·c; иначе минимум ||c||^2 - 2 x·c (||x||^2 общий для всех центроидов)
+            double score = spherical ? dot : 2 * dot - squaredNorms[c];
+            if (size < capacity) {
+                heapIds[size] = c;
+                heapScores[size] = score;
+                siftUp(heapIds, heapScores, size++);
+            } else if (score > heapScores[0]) {
+                // При равных оценках остаётся кластер с меньшим номером, как при линейном поиске
+                heapIds[0] = c;
+                heapScores[0] = score;
+                siftDown(heapIds, heapScores, 0, size);
+            }
+        }
+
+        // Извлечение из кучи: худший кандидат уходит в конец, получаем порядок по убыванию оценки
+        for (int end = size - 1; end > 0; end--) {
+            swap(heapIds, heapScores, 0, end);
+            siftDown(heapIds, heapScores, 0, end);
+        }
+        for (int i = 0; i < size; i++) {
+            heapScores[i] = similarity(heapScores[i], squaredNorm);
+        }
+
+        double margin = size > 1 ? heapScores[0] - heapScores[1] : Double.NaN;
+        int count = Math.min(size, Math.max(1, top));
+        return new Prediction(heapIds[0], Math.max(0, heapScores[0]), margin,
+                Arrays.copyOf(heapIds, count), Arrays.copyOf(heapScores, count));
+    }
+
+    /**
+     * Оценка кандидата в шкале уверенности: 1 - расстояние до центроида или косинусная близость
+     * (без обрезки нулём, чтобы кандидаты и отрыв различались и у далёких заявок)
+     */
+    private double similarity(double score, double squaredNorm) {
+        if (spherical) {
+            return squaredNorm > 0 ? score / Math.sqrt(squaredNorm) : 0.0;
+        }
+        return 1 - Math.sqrt(Math.max(0.0, squaredNorm - score));
+    }
+
+    /**
+     * Порядок кучи: i хуже j - меньшая оценка, при равенстве больший номер кластера
+     */
+    private static boolean worse(int[] ids, double[] scores, int i, int j) {
+        return scores[i] < scores[j] || (scores[i] == scores[j] && ids[i] > ids[j]);
+    }
+
+    private static void siftUp(int[] ids, double[] scores, int i) {
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (!worse(ids, scores, i, parent)) {
+                break;
+            }
+            swap(ids, scores, i, parent);
+            i = parent;
+        }
+    }
+
+    private static void siftDown(int[] ids, double[] scores, int i, int size) {
+        while (true) {
+            int child = 2 * i + 1;
+            if (child >= size) {
+                break;
+            }
+            if (child + 1 < size && worse(ids, scores, child + 1, child)) {
+                child++;
+            }
+            if (!worse(ids, scores, child, i)) {
+                break;
+            }
+            swap(ids, scores, i, child);
+            i = child;
+        }
+    }
+
+    private static void swap(int[] ids, double[] scores, int i, int j) {
+        int id = ids[i];
+        ids[i] = ids[j];
+        ids[j] = id;
+        double score = scores[i];
+        scores[i] = scores[j];
+        scores[j] = score;
+    }
+
+    /**
+     * Строка CSR на центроид float32: значения заявки округляются до float, как при обучении
+     */
+    private static double dot(SparseMatrix query, int row, float[] centroid) {
+        double sum = 0.0;
+        for (int p = query.rowStart(row), end = query.rowEnd(row); p < end; p++) {
+            sum += (double) (float) query.value(p) * centroid[query.column(p)];
+        }
+        return sum;
+    }
+
+    /**
+     * Результат оценки: номер кластера, уверенность, отрыв от второго кластера (NaN при одном кластере)
+     * и кандидаты по убыванию оценки
+     */
+    @Getter
+    @AllArgsConstructor
+    public static class Prediction {
+        private final int clusterId;
+        private final double confidence;
+        private final double margin;
+        private final int[] candidates;
+        private final double[] scores;
+    }
+}
@@ -0,0 +1,61 @@
+package ru.itmo.alfa.comand4.core.util.clustering;
+
+import ru.itmo.alfa.comand4.core.model.FeatureMatrix;
+
+import java.util.Random;
+
+/**
+ * Выбор начальных центроидов для собственных реализаций KMeans
+ */
+final class CentroidSeeding {
+
+    private CentroidSeeding() {
+    }
+
+    /**
+     * k-means++ на случайной подвыборке корпуса
+     */
+    static double[][] kMeansPlusPlus(FeatureMatrix features, int k, int sampleSize, Random random) {
+        int n = features.rows();
+        int[] sample = new int[sampleSize];
+        for (int i = 0; i < sampleSize; i++) {
+            sample[i] = sampleSize == n ? i : random.nextInt(n);
+        }
+
+        double[][] centroids = new double[k][];
+        centroids[0] = features.toDense(sample[random.nextInt(sampleSize)]);
+        double squaredNorm = VectorKernels.squaredNorm(centroids[0]);
+
+        double[] distances = new double[sampleSize];
+        for (int i = 0; i < sampleSize; i++) {
+            distances[i] = features.squaredDistance(sample[i], centroids[0], squaredNorm);
+        }
+
+        for (int c = 1; c < k; c++) {
+            double total = 0.0;
+            for (double d : distances) {
+                total += d;
+            }
+
+            // Следующий центр выбирается с вероятностью, пропорциональной квадрату расстояния
+            int chosen = random.nextInt(sampleSize);
+            if (total > 0) {
+                double target = random.nextDouble() * total;
+                for (int i = 0; i < sampleSize; i++) {
+                    target -= distances[i];
+                    if (target <= 0) {
+                        chosen = i;
+                        break;
+                    }
+                }
+            }
+            centroids[c] = features.toDense(sample[chosen]);
+            squaredNorm = VectorKernels.squaredNorm(centroids[c]);
+
+            for (int i = 0; i < sampleSize; i++) {
+                distances[i] = Math.min(distances[i], features.squaredDistance(sample[i], centroids[c], squaredNorm));
+            }
+        }
+        return centroids;
+    }
+}
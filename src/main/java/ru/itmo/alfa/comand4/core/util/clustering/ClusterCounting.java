@@ -1,28 +1,122 @@
 package ru.itmo.alfa.comand4.core.util.clustering;
 
+import ru.itmo.alfa.comand4.core.model.FeatureMatrix;
 import smile.clustering.KMeans;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
 
 /**
- * Метод "Локтя" для определения количества кластеров
+ * Метод "Локтя" для определения количества кластеров.
+ * <p>
+ * Модели перебора обучаются алгоритмом Ллойда ({@link HamerlyKMeans}, начальные центроиды k-means++)
+ * прямо на матрице признаков: разреженная матрица не уплотняется, расстояния считаются по ненулевым элементам
  */
 public class ClusterCounting {
 
-    public static int findOptimalK(double[][] features) {
+    /**
+     * Сколько значений k после лучшего излома должны подтвердить спад, чтобы остановить перебор
+     */
+    private static final int PATIENCE = 3;
+
+    /**
+     * Излом считается пройденным, если последующие отношения спадов меньше лучшего в это число раз
+     */
+    private static final double PEAK_FACTOR = 2.0;
+
+    public static int findOptimalK(FeatureMatrix features, long seed) {
+        return findOptimalK(features, 0, seed);
+    }
+
+    /**
+     * Перебор k волнами по parallelism значений в отдельном ограниченном fork-join пуле
+     *
+     * @param parallelism количество одновременно обучаемых моделей, 0 - по числу процессоров
+     * @param seed        зерно выбора начальных центроидов (для каждого k своё, результат не зависит от порядка)
+     */
+    public static int findOptimalK(FeatureMatrix features, int parallelism, long seed) {
         List<Double> distortions = new ArrayList<>();
 
         // Не больше чем n/50 и не меньше 2
-        int maxK = Math.max(2, features.length / 50);
+        int maxK = Math.max(2, features.rows() / 50);
+        int threads = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
 
-        for (int k = 2; k <= maxK; k++) {
-            KMeans kmeans = KMeans.fit(features, k);
-            distortions.add(kmeans.distortion);
+        long start = System.nanoTime();
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            for (int from = 2; from <= maxK && !elbowPassed(distortions); from += threads) {
+                int first = from;
+                int last = Math.min(maxK, from + threads - 1);
+                // Параллельный стрим, запущенный из задачи пула, выполняется в этом же пуле
+                List<Double> wave = pool.submit(() -> IntStream.rangeClosed(first, last)
+                        .parallel()
+                        .mapToObj(k -> fit(features, k, seed))
+                        .toList()
+                ).get();
+                distortions.addAll(wave);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Поиск количества кластеров прерван", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Ошибка обучения KMeans при поиске количества кластеров", e.getCause());
+        } finally {
+            pool.shutdown();
         }
 
         // Находим "локоть" - точку, где уменьшение WCSS замедляется
-        return findElbowPoint(distortions);
+        int optimalK = findElbowPoint(distortions);
+        System.out.printf("Метод локтя: k=%d, проверено %d из %d значений, потоков %d, %d мс%n",
+                optimalK, distortions.size(), maxK - 1, threads, (System.nanoTime() - start) / 1_000_000);
+        return optimalK;
+    }
+
+    /**
+     * Сумма квадратов расстояний до центроидов (WCSS) модели с k кластерами
+     */
+    private static double fit(FeatureMatrix features, int k, long seed) {
+        long start = System.nanoTime();
+        double[][] seeds = CentroidSeeding.kMeansPlusPlus(features, k, features.rows(), new Random(seed + k));
+        KMeans kmeans = HamerlyKMeans.fit(features, seeds, 100, 1e-4);
+
+        double[] squaredNorms = new double[k];
+        for (int c = 0; c < k; c++) {
+            squaredNorms[c] = VectorKernels.squaredNorm(kmeans.centroids[c]);
+        }
+        double distortion = 0.0;
+        for (int i = 0; i < features.rows(); i++) {
+            distortion += features.squaredDistance(i, kmeans.centroids[kmeans.y[i]], squaredNorms[kmeans.y[i]]);
+        }
+        System.out.printf("  k=%-3d distortion=%.4f  %d мс%n", k, distortion, (System.nanoTime() - start) / 1_000_000);
+        return distortion;
+    }
+
+    /**
+     * Лучший излом уже найден: после него PATIENCE отношений спадов подряд заметно меньше максимума
+     */
+    private static boolean elbowPassed(List<Double> distortions) {
+        double maxDrop = 0;
+        int best = -1;
+        int after = 0;
+
+        for (int i = 1; i < distortions.size() - 1; i++) {
+            double dropRatio = dropRatio(distortions, i);
+            if (dropRatio > maxDrop) {
+                maxDrop = dropRatio;
+                best = i;
+                after = 0;
+            } else if (best >= 0 && dropRatio * PEAK_FACTOR < maxDrop) {
+                after++;
+            } else {
+                after = 0;
+            }
+        }
+
+        return best >= 0 && after >= PATIENCE;
     }
 
     private static int findElbowPoint(List<Double> distortions) {
@@ -31,9 +125,7 @@ public class ClusterCounting {
         int optimalK = 2;
 
         for (int i = 1; i < distortions.size() - 1; i++) {
-            double prevDrop = distortions.get(i-1) - distortions.get(i);
-            double nextDrop = distortions.get(i) - distortions.get(i+1);
-            double dropRatio = prevDrop / nextDrop;
+            double dropRatio = dropRatio(distortions, i);
 
             if (dropRatio > maxDrop) {
                 maxDrop = dropRatio;
@@ -43,4 +135,10 @@ public class ClusterCounting {
 
         return optimalK;
     }
+
+    private static double dropRatio(List<Double> distortions, int i) {
+        double prevDrop = distortions.get(i-1) - distortions.get(i);
+        double nextDrop = distortions.get(i) - distortions.get(i+1);
+        return prevDrop / nextDrop;
+    }
 }
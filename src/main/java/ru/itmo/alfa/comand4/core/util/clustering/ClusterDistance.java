@@ -1,5 +1,7 @@
 package ru.itmo.alfa.comand4.core.util.clustering;
 
+import ru.itmo.alfa.comand4.core.model.FeatureMatrix;
+
 import java.util.Arrays;
 
 public class ClusterDistance {
@@ -13,14 +15,14 @@ public class ClusterDistance {
      * @param pointIndex индекс точки, для которой вычисляется расстояние
      * @return среднее расстояние до других точек в том же кластере, или 0 если точка единственная в кластере
      */
-    public static double calculateAverageDistanceToOwnCluster(double[][] features, int[] labels, int pointIndex) {
+    public static double calculateAverageDistanceToOwnCluster(FeatureMatrix features, int[] labels, int pointIndex) {
         int cluster = labels[pointIndex];
         double sum = 0.0;
         int count = 0;
 
-        for (int i = 0; i < features.length; i++) {
+        for (int i = 0; i < features.rows(); i++) {
             if (labels[i] == cluster && i != pointIndex) {
-                sum += distance(features[pointIndex], features[i]);
+                sum += distance(features, pointIndex, i);
                 count++;
             }
         }
@@ -37,13 +39,13 @@ public class ClusterDistance {
      * @param targetCluster целевой кластер, до точек которого измеряются расстояния
      * @return среднее расстояние до точек целевого кластера, или Double.MAX_VALUE если целевой кластер пуст
      */
-    public static double calculateAverageDistanceToSpecificCluster(double[][] features, int[] labels, int pointIndex, int targetCluster) {
+    public static double calculateAverageDistanceToSpecificCluster(FeatureMatrix features, int[] labels, int pointIndex, int targetCluster) {
         double sum = 0.0;
         int count = 0;
 
-        for (int i = 0; i < features.length; i++) {
+        for (int i = 0; i < features.rows(); i++) {
             if (labels[i] == targetCluster && i != pointIndex) {
-                sum += distance(features[pointIndex], features[i]);
+                sum += distance(features, pointIndex, i);
                 count++;
             }
         }
@@ -59,7 +61,7 @@ public class ClusterDistance {
      * @param pointIndex индекс точки, для которой вычисляется расстояние
      * @return среднее расстояние до ближайшего соседнего кластера, или 0 если есть только один кластер
      */
-    public static double calculateAverageDistanceToNearestCluster(double[][] features, int[] labels, int pointIndex) {
+    public static double calculateAverageDistanceToNearestCluster(FeatureMatrix features, int[] labels, int pointIndex) {
         int ownCluster = labels[pointIndex];
         double minAvgDistance = Double.MAX_VALUE;
 
@@ -82,6 +84,13 @@ public class ClusterDistance {
         return euclideanDistance(a, b);
     }
 
+    /**
+     * Евклидово расстояние между двумя строками матрицы признаков
+     */
+    public static double distance(FeatureMatrix features, int a, int b) {
+        return Math.sqrt(features.squaredDistance(a, b));
+    }
+
     /**
      * Вычисляет евклидово расстояние между двумя точками в многомерном пространстве.
      *
@@ -93,10 +102,6 @@ public class ClusterDistance {
      * @throws IllegalArgumentException если точки имеют разную размерность
      */
     private static double euclideanDistance(double[] a, double[] b) {
-        double sum = 0.0;
-        for (int i = 0; i < a.length; i++) {
-            sum += Math.pow(a[i] - b[i], 2);
-        }
-        return Math.sqrt(sum);
+        return VectorKernels.distance(a, b);
     }
 }
@@ -0,0 +1,234 @@
+package ru.itmo.alfa.comand4.core.util.clustering;
+
+import ru.itmo.alfa.comand4.core.model.FeatureMatrix;
+import ru.itmo.alfa.comand4.core.model.Projection;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Понижение размерности пространства признаков перед кластеризацией
+ */
+public class DimensionReduction {
+
+    /**
+     * Дополнительные столбцы случайной выборки в рандомизированном SVD
+     */
+    private static final int OVERSAMPLING = 10;
+
+    /**
+     * Количество степенных итераций: уточняют подпространство при медленно убывающем спектре
+     */
+    private static final int POWER_ITERATIONS = 2;
+
+    /**
+     * Разреженная случайная проекция (Achlioptas / Li): элементы ±sqrt(s / dimension) с вероятностью 1 / 2s,
+     * остальные нули, s = sqrt(cols). Не зависит от данных, расстояния сохраняются приближенно.
+     * Хранятся только ненулевые веса (~ cols × dimension / s)
+     */
+    public static Projection randomProjection(int cols, int dimension, long seed) {
+        Random random = new Random(seed);
+        double s = Math.max(1.0, Math.sqrt(cols));
+        double density = 1.0 / s;
+        double scale = Math.sqrt(s / dimension);
+
+        int[] columnPtr = new int[cols + 1];
+        int capacity = (int) Math.min(Integer.MAX_VALUE - 8, (long) (cols * (double) dimension * density * 1.1) + 16);
+        int[] targets = new int[capacity];
+        double[] values = new double[capacity];
+        int nnz = 0;
+        for (int j = 0; j < cols; j++) {
+            for (int t = 0; t < dimension; t++) {
+                double r = random.nextDouble();
+                if (r < density) {
+                    if (nnz == targets.length) {
+                        targets = Arrays.copyOf(targets, 2 * nnz);
+                        values = Arrays.copyOf(values, 2 * nnz);
+                    }
+                    targets[nnz] = t;
+                    values[nnz++] = r < density / 2 ? scale : -scale;
+                }
+            }
+            columnPtr[j + 1] = nnz;
+        }
+        return new Projection("random", dimension, columnPtr, Arrays.copyOf(targets, nnz), Arrays.copyOf(values, nnz));
+    }
+
+    /**
+     * Рандомизированный усечённый SVD (Halko, Martinsson, Tropp): проекция на первые dimension
+     * правых сингулярных векторов матрицы признаков.
+     * <p>
+     * Большие матрицы хранятся по столбцам (double[столбец][строка]), разреженная матрица
+     * участвует только в произведениях A·X и Aᵀ·Y
+     */
+    public static Projection truncatedSvd(FeatureMatrix features, int dimension, long seed) {
+        int n = features.rows();
+        int m = features.cols();
+        dimension = Math.min(dimension, Math.min(n, m));
+        int l = Math.min(dimension + OVERSAMPLING, Math.min(n, m));
+
+        // Случайная гауссова матрица Ω (m × l)
+        Random random = new Random(seed);
+        double[][] omega = new double[l][m];
+        for (double[] column : omega) {
+            for (int j = 0; j < m; j++) {
+                column[j] = random.nextGaussian();
+            }
+        }
+
+        // Базис образа: Q = orth(A (Aᵀ A)^q Ω)
+        double[][] q = orthonormalize(multiply(features, omega));
+        for (int i = 0; i < POWER_ITERATIONS; i++) {
+            double[][] z = orthonormalize(multiplyTransposed(features, q));
+            q = orthonormalize(multiply(features, z));
+        }
+
+        // Bᵀ = Aᵀ Q (m × l); собственные векторы B Bᵀ дают левые сингулярные векторы малой матрицы B
+        double[][] bt = multiplyTransposed(features, q);
+        double[][] gram = new double[l][l];
+        for (int s = 0; s < l; s++) {
+            for (int t = s; t < l; t++) {
+                gram[s][t] = gram[t][s] = VectorKernels.dot(bt[s], bt[t]);
+            }
+        }
+
+        double[][] eigenvectors = new double[l][l];
+        double[] eigenvalues = jacobiEigen(gram, eigenvectors);
+        Integer[] order = new Integer[l];
+        for (int i = 0; i < l; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> Double.compare(eigenvalues[b], eigenvalues[a]));
+
+        // Правые сингулярные векторы: V = Bᵀ U Σ⁻¹
+        double[][] weights = new double[m][dimension];
+        for (int t = 0; t < dimension; t++) {
+            int e = order[t];
+            double sigma = Math.sqrt(Math.max(eigenvalues[e], 0.0));
+            if (sigma < 1e-12) {
+                continue;
+            }
+            for (int s = 0; s < l; s++) {
+                double factor = eigenvectors[s][e] / sigma;
+                for (int j = 0; j < m; j++) {
+                    weights[j][t] += bt[s][j] * factor;
+                }
+            }
+        }
+        return new Projection("svd", weights, dimension);
+    }
+
+    /**
+     * A·X: столбцы X длины cols -> столбцы результата длины rows
+     */
+    private static double[][] multiply(FeatureMatrix features, double[][] x) {
+        double[][] result = new double[x.length][features.rows()];
+        for (int t = 0; t < x.length; t++) {
+            for (int i = 0; i < features.rows(); i++) {
+                result[t][i] = features.dot(i, x[t]);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Aᵀ·Y: столбцы Y длины rows -> столбцы результата длины cols
+     */
+    private static double[][] multiplyTransposed(FeatureMatrix features, double[][] y) {
+        double[][] result = new double[y.length][features.cols()];
+        for (int t = 0; t < y.length; t++) {
+            for (int i = 0; i < features.rows(); i++) {
+                if (y[t][i] != 0) {
+                    features.addTo(i, result[t], y[t][i]);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Модифицированный Грам-Шмидт по столбцам; вырожденные столбцы обнуляются
+     */
+    private static double[][] orthonormalize(double[][] columns) {
+        for (int t = 0; t < columns.length; t++) {
+            double[] column = columns[t];
+            for (int s = 0; s < t; s++) {
+                double projection = VectorKernels.dot(columns[s], column);
+                double[] basis = columns[s];
+                for (int i = 0; i < column.length; i++) {
+                    column[i] -= projection * basis[i];
+                }
+            }
+            double norm = Math.sqrt(VectorKernels.squaredNorm(column));
+            for (int i = 0; i < column.length; i++) {
+                column[i] = norm > 1e-12 ? column[i] / norm : 0.0;
+            }
+        }
+        return columns;
+    }
+
+    /**
+     * Собственные значения симметричной матрицы циклическим методом Якоби.
+     * Собственные векторы записываются в столбцы vectors
+     */
+    private static double[] jacobiEigen(double[][] matrix, double[][] vectors) {
+        int n = matrix.length;
+        double[][] a = new double[n][];
+        for (int i = 0; i < n; i++) {
+            a[i] = matrix[i].clone();
+            vectors[i][i] = 1.0;
+        }
+
+        for (int sweep = 0; sweep < 100; sweep++) {
+            double off = 0.0;
+            for (int p = 0; p < n; p++) {
+                for (int r = p + 1; r < n; r++) {
+                    off += a[p][r] * a[p][r];
+                }
+            }
+            if (off < 1e-22) {
+                break;
+            }
+
+            for (int p = 0; p < n; p++) {
+                for (int r = p + 1; r < n; r++) {
+                    if (Math.abs(a[p][r]) < 1e-300) {
+                        continue;
+                    }
+                    double theta = (a[r][r] - a[p][p]) / (2 * a[p][r]);
+                    double t = Math.signum(theta) / (Math.abs(theta) + Math.sqrt(theta * theta + 1));
+                    if (theta == 0) {
+                        t = 1.0;
+                    }
+                    double c = 1 / Math.sqrt(t * t + 1);
+                    double s = t * c;
+
+                    for (int k = 0; k < n; k++) {
+                        double akp = a[k][p];
+                        double akr = a[k][r];
+                        a[k][p] = c * akp - s * akr;
+                        a[k][r] = s * akp + c * akr;
+                    }
+                    for (int k = 0; k < n; k++) {
+                        double apk = a[p][k];
+                        double ark = a[r][k];
+                        a[p][k] = c * apk - s * ark;
+                        a[r][k] = s * apk + c * ark;
+                    }
+                    for (int k = 0; k < n; k++) {
+                        double vkp = vectors[k][p];
+                        double vkr = vectors[k][r];
+                        vectors[k][p] = c * vkp - s * vkr;
+                        vectors[k][r] = s * vkp + c * vkr;
+                    }
+                }
+            }
+        }
+
+        double[] eigenvalues = new double[n];
+        for (int i = 0; i < n; i++) {
+            eigenvalues[i] = a[i][i];
+        }
+        return eigenvalues;
+    }
+}
@@ -0,0 +1,205 @@
+package ru.itmo.alfa.comand4.core.util.clustering;
+
+import ru.itmo.alfa.comand4.core.model.FeatureMatrix;
+import smile.clustering.KMeans;
+
+import java.util.Arrays;
+
+/**
+ * Алгоритм Ллойда с отсечениями Hamerly (2010) по неравенству треугольника.
+ * <p>
+ * Для каждой точки хранятся верхняя граница расстояния до своего центроида и нижняя граница
+ * расстояния до второго ближайшего. Если верхняя граница меньше max(нижняя граница, половина
+ * расстояния от своего центроида до ближайшего другого), назначение не может измениться
+ * и остальные k - 1 расстояний не считаются.
+ * <p>
+ * Результат совпадает с наивным циклом: при равных расстояниях выбирается центроид с меньшим индексом,
+ * distortion - сумма (не квадратов) расстояний до назначенных центроидов, пустой кластер сохраняет центроид.
+ * Строки данных читаются через {@link FeatureMatrix}: для разреженной матрицы расстояние до центроида
+ * стоит O(nnz) по заранее посчитанным нормам центроидов.
+ */
+public class HamerlyKMeans {
+
+    /**
+     * Запас на ошибку округления в границах: при почти равных расстояниях точка пересчитывается полностью
+     */
+    private static final double EPSILON = 1e-12;
+
+    /**
+     * @param initialCentroids начальные центроиды (не изменяются)
+     */
+    public static KMeans fit(FeatureMatrix data, double[][] initialCentroids, int maxIter, double tol) {
+        int n = data.rows();
+        int k = initialCentroids.length;
+        long naivePerIteration = (long) n * k;
+
+        double[][] centroids = new double[k][];
+        double[] squaredNorms = new double[k];
+        for (int c = 0; c < k; c++) {
+            centroids[c] = initialCentroids[c].clone();
+            squaredNorms[c] = VectorKernels.squaredNorm(centroids[c]);
+        }
+
+        int[] y = new int[n];
+        double[] upper = new double[n];
+        double[] lower = new double[n];
+        boolean[] tight = new boolean[n];
+
+        // Начальное назначение - полный перебор
+        double distortion = 0.0;
+        for (int i = 0; i < n; i++) {
+            scan(data, i, centroids, squaredNorms, -1, 0.0, y, upper, lower);
+            tight[i] = true;
+            distortion += upper[i];
+        }
+        System.out.printf("Distortion after initialization: %.4f%n", distortion);
+
+        int d = centroids[0].length;
+        int[] size = new int[k];
+        double[][] sum = new double[k][d];
+        double[][] previous = new double[k][d];
+        double[] moved = new double[k];
+        double[] separation = new double[k];
+
+        double diff = Double.MAX_VALUE;
+
+        for (int iter = 1; iter <= maxIter && diff > tol; iter++) {
+            // Обновляем центроиды и считаем их сдвиги
+            for (int c = 0; c < k; c++) {
+                System.arraycopy(centroids[c], 0, previous[c], 0, d);
+            }
+            updateCentroids(centroids, data, y, size, sum);
+            for (int c = 0; c < k; c++) {
+                squaredNorms[c] = VectorKernels.squaredNorm(centroids[c]);
+            }
+
+            long evaluations = 0;
+            int farthest = 0;
+            for (int c = 0; c < k; c++) {
+                moved[c] = VectorKernels.distance(previous[c], centroids[c]);
+                if (moved[c] > moved[farthest]) {
+                    farthest = c;
+                }
+            }
+            double secondMove = 0.0;
+            for (int c = 0; c < k; c++) {
+                if (c != farthest) {
+                    secondMove = Math.max(secondMove, moved[c]);
+                }
+            }
+            evaluations += k;
+
+            // Половина расстояния до ближайшего другого центроида
+            Arrays.fill(separation, Double.MAX_VALUE);
+            for (int a = 0; a < k; a++) {
+                for (int b = a + 1; b < k; b++) {
+                    double half = VectorKernels.distance(centroids[a], centroids[b]) / 2;
+                    separation[a] = Math.min(separation[a], half);
+                    separation[b] = Math.min(separation[b], half);
+                }
+            }
+            evaluations += (long) k * (k - 1) / 2;
+
+            // Пересчитываем кластеры
+            double newDistortion = 0.0;
+            int rescanned = 0;
+            for (int i = 0; i < n; i++) {
+                int a = y[i];
+                if (moved[a] > 0) {
+                    upper[i] += moved[a];
+                    tight[i] = false;
+                }
+                lower[i] -= a == farthest ? secondMove : moved[farthest];
+
+                // Точное расстояние до своего центроида нужно в любом случае - для distortion
+                if (!tight[i]) {
+                    upper[i] = distance(data, i, centroids[a], squaredNorms[a]);
+                    tight[i] = true;
+                    evaluations++;
+                }
+
+                double bound = Math.max(separation[a], lower[i]);
+                if (upper[i] * (1 + EPSILON) >= bound) {
+                    scan(data, i, centroids, squaredNorms, a, upper[i], y, upper, lower);
+                    evaluations += k - 1;
+                    rescanned++;
+                }
+                newDistortion += upper[i];
+            }
+
+            System.out.printf("Iteration %d: distortion = %.4f, improvement = %.4f, " +
+                            "distances %d of %d (%.1f%% avoided), rescanned points %d%n",
+                    iter, newDistortion, diff, evaluations, naivePerIteration,
+                    100.0 * (naivePerIteration - evaluations) / naivePerIteration, rescanned);
+
+            diff = distortion - newDistortion;
+            distortion = newDistortion;
+
+            if (diff <= tol) {
+                break;
+            }
+        }
+
+        return new KMeans(distortion, centroids, y);
+    }
+
+    /**
+     * Полный перебор центроидов для точки в порядке индексов (строгое сравнение, как в наивном цикле)
+     *
+     * @param known         центроид, расстояние до которого уже посчитано, или -1
+     * @param knownDistance расстояние до центроида known
+     */
+    private static void scan(FeatureMatrix data, int i, double[][] centroids, double[] squaredNorms,
+                             int known, double knownDistance, int[] y, double[] upper, double[] lower) {
+        double best = Double.MAX_VALUE;
+        double second = Double.MAX_VALUE;
+        int bestCluster = 0;
+
+        for (int c = 0; c < centroids.length; c++) {
+            double distance = c == known ? knownDistance : distance(data, i, centroids[c], squaredNorms[c]);
+            if (distance < best) {
+                second = best;
+                best = distance;
+                bestCluster = c;
+            } else if (distance < second) {
+                second = distance;
+            }
+        }
+
+        y[i] = bestCluster;
+        upper[i] = best;
+        lower[i] = second;
+    }
+
+    private static double distance(FeatureMatrix data, int i, double[] centroid, double squaredNorm) {
+        return Math.sqrt(data.squaredDistance(i, centroid, squaredNorm));
+    }
+
+    private static void updateCentroids(double[][] centroids, FeatureMatrix data, int[] y, int[] size, double[][] sum) {
+        int k = centroids.length;
+        int d = centroids[0].length;
+
+        // Обнуляем суммы и счетчики
+        for (int i = 0; i < k; i++) {
+            size[i] = 0;
+            Arrays.fill(sum[i], 0.0);
+        }
+
+        // Суммируем векторы по кластерам
+        for (int i = 0; i < data.rows(); i++) {
+            int cluster = y[i];
+            size[cluster]++;
+            data.addTo(i, sum[cluster], 1.0);
+        }
+
+        // Вычисляем новые центроиды
+        for (int i = 0; i < k; i++) {
+            if (size[i] > 0) {
+                for (int j = 0; j < d; j++) {
+                    centroids[i][j] = sum[i][j] / size[i];
+                }
+            }
+            // Если кластер пустой, оставляем старый центроид
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package ru.itmo.alfa.comand4.core.util.clustering;
+
+import ru.itmo.alfa.comand4.core.model.FeatureMatrix;
+import smile.clustering.KMeans;
+
+import java.util.Random;
+
+/**
+ * Mini-batch KMeans (Sculley, 2010) поверх матрицы признаков без плотной копии корпуса.
+ * <p>
+ * Каждая итерация обрабатывает случайную выборку из batchSize документов: точка назначается
+ * ближайшему центроиду, центроид сдвигается к ней с шагом 1 / (число точек, уже попавших в кластер).
+ * Результат упаковывается в {@link KMeans}, поэтому предсказание и метрики работают как с моделью Smile.
+ */
+public class MiniBatchKMeans {
+
+    /**
+     * Итерации без улучшения сглаженной ошибки, после которых обучение останавливается
+     */
+    private static final int PATIENCE = 10;
+
+    /**
+     * Коэффициент экспоненциального сглаживания ошибки на батчах
+     */
+    private static final double SMOOTHING = 0.1;
+
+    /**
+     * @param batchSize     количество документов в одном батче
+     * @param maxIterations максимальное количество батчей
+     * @param tolerance     порог относительного сдвига центроидов за итерацию
+     * @param seed          зерно генератора (инициализация и выборка батчей)
+     */
+    public static KMeans fit(FeatureMatrix features, int k, int batchSize, int maxIterations, double tolerance, long seed) {
+        int n = features.rows();
+        if (k < 2 || k > n) {
+            throw new IllegalArgumentException("Некорректное количество кластеров: " + k);
+        }
+
+        long start = System.nanoTime();
+        Random random = new Random(seed);
+        batchSize = Math.min(batchSize, n);
+
+        double[][] centroids = CentroidSeeding.kMeansPlusPlus(features, k, Math.min(n, Math.max(3 * batchSize, 10 * k)), random);
+        double[] centroidNorms = new double[k];
+        for (int c = 0; c < k; c++) {
+            centroidNorms[c] = VectorKernels.squaredNorm(centroids[c]);
+        }
+        long[] counts = new long[k];
+
+        int[] batch = new int[batchSize];
+        int[] batchLabels = new int[batchSize];
+        double smoothedError = Double.NaN;
+        double bestError = Double.MAX_VALUE;
+        int stale = 0;
+        int iteration = 0;
+        String reason = "лимит итераций";
+
+        while (iteration < maxIterations) {
+            iteration++;
+
+            // Выборка батча и назначение по центроидам начала итерации
+            double batchError = 0.0;
+            for (int b = 0; b < batchSize; b++) {
+                batch[b] = random.nextInt(n);
+                batchError += nearest(features, batch[b], centroids, centroidNorms, batchLabels, b);
+            }
+            batchError /= batchSize;
+
+            // Градиентный шаг с убывающей по кластеру скоростью обучения
+            double[][] previous = new double[k][];
+            for (int b = 0; b < batchSize; b++) {
+                int c = batchLabels[b];
+                if (previous[c] == null) {
+                    previous[c] = centroids[c].clone();
+                }
+                double rate = 1.0 / ++counts[c];
+                double[] centroid = centroids[c];
+                for (int j = 0; j < centroid.length; j++) {
+                    centroid[j] *= 1.0 - rate;
+                }
+                features.addTo(batch[b], centroid, rate);
+            }
+
+            // Относительный сдвиг центроидов
+            double shift = 0.0;
+            double norm = 0.0;
+            for (int c = 0; c < k; c++) {
+                if (previous[c] != null) {
+                    shift += VectorKernels.squaredDistance(previous[c], centroids[c]);
+                    centroidNorms[c] = VectorKernels.squaredNorm(centroids[c]);
+                }
+                norm += centroidNorms[c];
+            }
+
+            smoothedError = Double.isNaN(smoothedError)
+                    ? batchError
+                    : (1 - SMOOTHING) * smoothedError + SMOOTHING * batchError;
+
+            if (norm > 0 && shift / norm < tolerance) {
+                reason = "сдвиг центроидов меньше порога";
+                break;
+            }
+            if (smoothedError < bestError) {
+                bestError = smoothedError;
+                stale = 0;
+            } else if (++stale >= PATIENCE) {
+                reason = "ошибка на батчах не улучшается";
+                break;
+            }
+        }
+
+        // Финальное назначение всего корпуса; distortion - сумма квадратов расстояний, как в Smile
+        int[] y = new int[n];
+        double distortion = 0.0;
+        for (int i = 0; i < n; i++) {
+            distortion += nearest(features, i, centroids, centroidNorms, y, i);
+        }
+
+        System.out.printf("Mini-batch KMeans: k=%d, батч %d, итераций %d (%s), distortion=%.4f, %d мс%n",
+                k, batchSize, iteration, reason, distortion, (System.nanoTime() - start) / 1_000_000);
+        return new KMeans(distortion, centroids, y);
+    }
+
+    /**
+     * Назначение строки ближайшему центроиду: ‖x‖² - 2·x·c + ‖c‖² с заранее посчитанными нормами
+     *
+     * @return квадрат расстояния до ближайшего центроида
+     */
+    private static double nearest(FeatureMatrix features, int row, double[][] centroids, double[] centroidNorms,
+                                  int[] labels, int position) {
+        double rowNorm = features.squaredNorm(row);
+        double best = Double.MAX_VALUE;
+        int label = 0;
+        for (int c = 0; c < centroids.length; c++) {
+            double distance = rowNorm - 2 * features.dot(row, centroids[c]) + centroidNorms[c];
+            if (distance < best) {
+                best = distance;
+                label = c;
+            }
+        }
+        labels[position] = label;
+        return Math.max(0.0, best);
+    }
+}
@@ -0,0 +1,77 @@
+package ru.itmo.alfa.comand4.core.util.clustering;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.FloatVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Реализация ядер {@link VectorKernels} на jdk.incubator.vector.
+ * Класс загружается только если модуль присутствует в среде выполнения
+ */
+final class SimdKernels {
+
+    private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+    private static final VectorSpecies<Float> FLOAT_SPECIES = FloatVector.SPECIES_PREFERRED;
+
+    static final int LANES = SPECIES.length();
+    private static final int FLOAT_LANES = FLOAT_SPECIES.length();
+    private static final int PARTS = FLOAT_LANES / LANES;
+
+    private SimdKernels() {
+    }
+
+    static double squaredDistance(double[] a, double[] b) {
+        int n = a.length;
+        int bound = SPECIES.loopBound(n);
+        DoubleVector acc = DoubleVector.zero(SPECIES);
+        for (int i = 0; i < bound; i += LANES) {
+            DoubleVector diff = DoubleVector.fromArray(SPECIES, a, i).sub(DoubleVector.fromArray(SPECIES, b, i));
+            acc = diff.fma(diff, acc);
+        }
+        double sum = acc.reduceLanes(VectorOperators.ADD);
+        for (int i = bound; i < n; i++) {
+            double d = a[i] - b[i];
+            sum += d * d;
+        }
+        return sum;
+    }
+
+    static double dot(double[] a, double[] b) {
+        int n = a.length;
+        int bound = SPECIES.loopBound(n);
+        DoubleVector acc = DoubleVector.zero(SPECIES);
+        for (int i = 0; i < bound; i += LANES) {
+            acc = DoubleVector.fromArray(SPECIES, a, i).fma(DoubleVector.fromArray(SPECIES, b, i), acc);
+        }
+        double sum = acc.reduceLanes(VectorOperators.ADD);
+        for (int i = bound; i < n; i++) {
+            sum += a[i] * b[i];
+        }
+        return sum;
+    }
+
+    /**
+     * Произведение float32: каждая половина регистра float расширяется до double,
+     * поэтому и произведения, и накопление - в double, как в скалярной ветке
+     */
+    static double dot(float[] a, float[] b) {
+        int n = a.length;
+        int bound = FLOAT_SPECIES.loopBound(n);
+        DoubleVector acc = DoubleVector.zero(SPECIES);
+        for (int i = 0; i < bound; i += FLOAT_LANES) {
+            FloatVector va = FloatVector.fromArray(FLOAT_SPECIES, a, i);
+            FloatVector vb = FloatVector.fromArray(FLOAT_SPECIES, b, i);
+            for (int part = 0; part < PARTS; part++) {
+                DoubleVector da = (DoubleVector) va.convertShape(VectorOperators.F2D, SPECIES, part);
+                DoubleVector db = (DoubleVector) vb.convertShape(VectorOperators.F2D, SPECIES, part);
+                acc = da.fma(db, acc);
+            }
+        }
+        double sum = acc.reduceLanes(VectorOperators.ADD);
+        for (int i = bound; i < n; i++) {
+            sum += (double) a[i] * b[i];
+        }
+        return sum;
+    }
+}
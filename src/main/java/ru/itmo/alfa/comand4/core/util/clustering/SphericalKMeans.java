@@ -0,0 +1,122 @@
+package ru.itmo.alfa.comand4.core.util.clustering;
+
+import ru.itmo.alfa.comand4.core.model.FeatureMatrix;
+import smile.clustering.KMeans;
+
+import java.util.Random;
+
+/**
+ * Сферический KMeans (Dhillon, Modha): кластеризация по косинусной близости.
+ * <p>
+ * Центроиды - единичные векторы, назначение - максимум скалярного произведения строки на центроид,
+ * поэтому для разреженной матрицы стоимость итерации пропорциональна nnz × k, а не rows × cols × k.
+ * Для L2-нормализованных строк (TF-IDF) это то же разбиение, что и по евклидову расстоянию
+ * до нормированных центроидов: ‖x - c‖² = 2 - 2·cos(x, c).
+ */
+public class SphericalKMeans {
+
+    /**
+     * @param tolerance порог относительного прироста суммарной косинусной близости
+     */
+    public static KMeans fit(FeatureMatrix features, int k, int maxIterations, double tolerance, long seed) {
+        int n = features.rows();
+        if (k < 2 || k > n) {
+            throw new IllegalArgumentException("Некорректное количество кластеров: " + k);
+        }
+
+        long start = System.nanoTime();
+        double[] norms = new double[n];
+        for (int i = 0; i < n; i++) {
+            norms[i] = Math.sqrt(features.squaredNorm(i));
+        }
+
+        double[][] centroids = CentroidSeeding.kMeansPlusPlus(features, k, n, new Random(seed));
+        for (double[] centroid : centroids) {
+            normalize(centroid);
+        }
+
+        int[] y = new int[n];
+        double similarity = assign(features, norms, centroids, y);
+        int iteration = 0;
+
+        while (iteration < maxIterations) {
+            iteration++;
+
+            // Новый центроид - нормированная сумма единичных строк кластера; пустой кластер сохраняет центроид
+            double[][] sums = new double[k][features.cols()];
+            int[] sizes = new int[k];
+            for (int i = 0; i < n; i++) {
+                if (norms[i] > 0) {
+                    features.addTo(i, sums[y[i]], 1.0 / norms[i]);
+                    sizes[y[i]]++;
+                }
+            }
+            for (int c = 0; c < k; c++) {
+                if (sizes[c] > 0 && normalize(sums[c])) {
+                    centroids[c] = sums[c];
+                }
+            }
+
+            double updated = assign(features, norms, centroids, y);
+            double gain = updated - similarity;
+            similarity = updated;
+            if (gain <= tolerance * Math.abs(updated)) {
+                break;
+            }
+        }
+
+        // distortion в терминах Smile: сумма квадратов евклидовых расстояний до центроидов
+        double distortion = 0.0;
+        for (int i = 0; i < n; i++) {
+            distortion += Math.max(0.0, norms[i] * norms[i] - 2 * features.dot(i, centroids[y[i]]) + 1.0);
+        }
+
+        System.out.printf("Spherical KMeans: k=%d, итераций %d, средняя косинусная близость %.4f, distortion=%.4f, %d мс%n",
+                k, iteration, similarity / n, distortion, (System.nanoTime() - start) / 1_000_000);
+        return new KMeans(distortion, centroids, y);
+    }
+
+    /**
+     * Ближайший по косинусу центроид (центроиды единичные)
+     *
+     * @return индекс центроида; similarity[0] - косинусная близость с ним
+     */
+    public static int nearest(FeatureMatrix features, int row, double[][] centroids, double[] similarity) {
+        double norm = Math.sqrt(features.squaredNorm(row));
+        int best = 0;
+        double bestDot = Double.NEGATIVE_INFINITY;
+        for (int c = 0; c < centroids.length; c++) {
+            double dot = features.dot(row, centroids[c]);
+            if (dot > bestDot) {
+                bestDot = dot;
+                best = c;
+            }
+        }
+        similarity[0] = norm > 0 ? bestDot / norm : 0.0;
+        return best;
+    }
+
+    /**
+     * @return сумма косинусных близостей строк к назначенным центроидам
+     */
+    private static double assign(FeatureMatrix features, double[] norms, double[][] centroids, int[] y) {
+        double total = 0.0;
+        double[] similarity = new double[1];
+        for (int i = 0; i < features.rows(); i++) {
+            y[i] = nearest(features, i, centroids, similarity);
+            total += similarity[0];
+        }
+        return total;
+    }
+
+    private static boolean normalize(double[] vector) {
+        double norm = Math.sqrt(VectorKernels.squaredNorm(vector));
+        if (norm == 0) {
+            return false;
+        }
+        for (int j = 0; j < vector.length; j++) {
+            vector[j] /= norm;
+        }
+        return true;
+    }
+}
@@ -0,0 +1,276 @@
+package ru.itmo.alfa.comand4.core.util.clustering;
+
+/**
+ * Общие вычислительные ядра расстояний и скалярных произведений.
+ * <p>
+ * Плотные векторы обрабатываются через jdk.incubator.vector (SIMD), если модуль подключен
+ * ({@code --add-modules jdk.incubator.vector}), иначе - развернутым скалярным циклом
+ * с четырьмя независимыми аккумуляторами.
+ */
+public final class VectorKernels {
+
+    private static final boolean SIMD = simdAvailable();
+
+    private VectorKernels() {
+    }
+
+    /**
+     * Используется ли векторная реализация
+     */
+    public static boolean isSimd() {
+        return SIMD;
+    }
+
+    /**
+     * Евклидово расстояние между двумя точками
+     */
+    public static double distance(double[] a, double[] b) {
+        return Math.sqrt(squaredDistance(a, b));
+    }
+
+    /**
+     * Квадрат евклидова расстояния между двумя точками
+     */
+    public static double squaredDistance(double[] a, double[] b) {
+        if (SIMD) {
+            return SimdKernels.squaredDistance(a, b);
+        }
+
+        int n = a.length;
+        int bound = n & ~3;
+        double s0 = 0, s1 = 0, s2 = 0, s3 = 0;
+        for (int i = 0; i < bound; i += 4) {
+            double d0 = a[i] - b[i];
+            double d1 = a[i + 1] - b[i + 1];
+            double d2 = a[i + 2] - b[i + 2];
+            double d3 = a[i + 3] - b[i + 3];
+            s0 += d0 * d0;
+            s1 += d1 * d1;
+            s2 += d2 * d2;
+            s3 += d3 * d3;
+        }
+        for (int i = bound; i < n; i++) {
+            double d = a[i] - b[i];
+            s0 += d * d;
+        }
+        return (s0 + s1) + (s2 + s3);
+    }
+
+    /**
+     * Скалярное произведение
+     */
+    public static double dot(double[] a, double[] b) {
+        if (SIMD) {
+            return SimdKernels.dot(a, b);
+        }
+
+        int n = a.length;
+        int bound = n & ~3;
+        double s0 = 0, s1 = 0, s2 = 0, s3 = 0;
+        for (int i = 0; i < bound; i += 4) {
+            s0 += a[i] * b[i];
+            s1 += a[i + 1] * b[i + 1];
+            s2 += a[i + 2] * b[i + 2];
+            s3 += a[i + 3] * b[i + 3];
+        }
+        for (int i = bound; i < n; i++) {
+            s0 += a[i] * b[i];
+        }
+        return (s0 + s1) + (s2 + s3);
+    }
+
+    /**
+     * Квадрат L2 нормы
+     */
+    public static double squaredNorm(double[] a) {
+        return dot(a, a);
+    }
+
+    /**
+     * Скалярное произведение (режим float32, накопление в double)
+     */
+    public static double dot(float[] a, float[] b) {
+        if (SIMD) {
+            return SimdKernels.dot(a, b);
+        }
+
+        int n = a.length;
+        int bound = n & ~3;
+        double s0 = 0, s1 = 0, s2 = 0, s3 = 0;
+        for (int i = 0; i < bound; i += 4) {
+            s0 += (double) a[i] * b[i];
+            s1 += (double) a[i + 1] * b[i + 1];
+            s2 += (double) a[i + 2] * b[i + 2];
+            s3 += (double) a[i + 3] * b[i + 3];
+        }
+        for (int i = bound; i < n; i++) {
+            s0 += (double) a[i] * b[i];
+        }
+        return (s0 + s1) + (s2 + s3);
+    }
+
+    /**
+     * Приведение вектора к float32
+     */
+    public static float[] toFloat(double[] vector) {
+        float[] result = new float[vector.length];
+        for (int i = 0; i < vector.length; i++) {
+            result[i] = (float) vector[i];
+        }
+        return result;
+    }
+
+    /**
+     * Приведение матрицы (например, центроидов) к float32
+     */
+    public static float[][] toFloat(double[][] matrix) {
+        float[][] result = new float[matrix.length][];
+        for (int i = 0; i < matrix.length; i++) {
+            result[i] = toFloat(matrix[i]);
+        }
+        return result;
+    }
+
+    /**
+     * Скалярное произведение разреженного вектора (индексы и значения в диапазоне [from, to)) на плотный
+     */
+    public static double dot(int[] indices, double[] values, int from, int to, double[] dense) {
+        double sum = 0.0;
+        for (int p = from; p < to; p++) {
+            sum += values[p] * dense[indices[p]];
+        }
+        return sum;
+    }
+
+    /**
+     * Скалярное произведение двух разреженных векторов с отсортированными индексами
+     */
+    public static double dot(int[] indicesA, double[] valuesA, int fromA, int toA,
+                             int[] indicesB, double[] valuesB, int fromB, int toB) {
+        int pa = fromA;
+        int pb = fromB;
+        double sum = 0.0;
+        while (pa < toA && pb < toB) {
+            int ca = indicesA[pa];
+            int cb = indicesB[pb];
+            if (ca == cb) {
+                sum += valuesA[pa++] * valuesB[pb++];
+            } else if (ca < cb) {
+                pa++;
+            } else {
+                pb++;
+            }
+        }
+        return sum;
+    }
+
+    /**
+     * Квадрат евклидова расстояния между двумя разреженными векторами с отсортированными индексами
+     */
+    public static double squaredDistance(int[] indicesA, double[] valuesA, int fromA, int toA,
+                                         int[] indicesB, double[] valuesB, int fromB, int toB) {
+        int pa = fromA;
+        int pb = fromB;
+        double sum = 0.0;
+
+        // Слияние двух отсортированных списков индексов
+        while (pa < toA && pb < toB) {
+            int ca = indicesA[pa];
+            int cb = indicesB[pb];
+            double diff;
+            if (ca == cb) {
+                diff = valuesA[pa++] - valuesB[pb++];
+            } else if (ca < cb) {
+                diff = valuesA[pa++];
+            } else {
+                diff = valuesB[pb++];
+            }
+            sum += diff * diff;
+        }
+        for (; pa < toA; pa++) {
+            sum += valuesA[pa] * valuesA[pa];
+        }
+        for (; pb < toB; pb++) {
+            sum += valuesB[pb] * valuesB[pb];
+        }
+        return sum;
+    }
+
+    /**
+     * Квадрат евклидова расстояния между разреженным и плотным вектором:
+     * ||x - c||^2 = ||c||^2 + сумма по ненулевым x: (x_j - c_j)^2 - c_j^2
+     *
+     * @param denseSquaredNorm заранее посчитанный квадрат нормы плотного вектора
+     */
+    public static double squaredDistance(int[] indices, double[] values, int from, int to,
+                                         double[] dense, double denseSquaredNorm) {
+        double sum = denseSquaredNorm;
+        for (int p = from; p < to; p++) {
+            double c = dense[indices[p]];
+            double diff = values[p] - c;
+            sum += diff * diff - c * c;
+        }
+        return Math.max(0.0, sum);
+    }
+
+    /**
+     * Варианты разреженных ядер для значений float32
+     */
+    public static double dot(int[] indices, float[] values, int from, int to, double[] dense) {
+        double sum = 0.0;
+        for (int p = from; p < to; p++) {
+            sum += values[p] * dense[indices[p]];
+        }
+        return sum;
+    }
+
+    public static double squaredDistance(int[] indicesA, float[] valuesA, int fromA, int toA,
+                                         int[] indicesB, float[] valuesB, int fromB, int toB) {
+        int pa = fromA;
+        int pb = fromB;
+        double sum = 0.0;
+
+        while (pa < toA && pb < toB) {
+            int ca = indicesA[pa];
+            int cb = indicesB[pb];
+            double diff;
+            if (ca == cb) {
+                diff = (double) valuesA[pa++] - valuesB[pb++];
+            } else if (ca < cb) {
+                diff = valuesA[pa++];
+            } else {
+                diff = valuesB[pb++];
+            }
+            sum += diff * diff;
+        }
+        for (; pa < toA; pa++) {
+            sum += (double) valuesA[pa] * valuesA[pa];
+        }
+        for (; pb < toB; pb++) {
+            sum += (double) valuesB[pb] * valuesB[pb];
+        }
+        return sum;
+    }
+
+    public static double squaredDistance(int[] indices, float[] values, int from, int to,
+                                         double[] dense, double denseSquaredNorm) {
+        double sum = denseSquaredNorm;
+        for (int p = from; p < to; p++) {
+            double c = dense[indices[p]];
+            double diff = values[p] - c;
+            sum += diff * diff - c * c;
+        }
+        return Math.max(0.0, sum);
+    }
+
+    private static boolean simdAvailable() {
+        if (ModuleLayer.boot().findModule("jdk.incubator.vector").isEmpty()) {
+            return false;
+        }
+        try {
+            return SimdKernels.LANES > 1;
+        } catch (LinkageError e) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package ru.itmo.alfa.comand4.core.util.morfology;
+
+import org.apache.lucene.analysis.LowerCaseFilter;
+import org.apache.lucene.analysis.StopFilter;
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.Tokenizer;
+import org.apache.lucene.analysis.ru.RussianAnalyzer;
+import org.apache.lucene.analysis.snowball.SnowballFilter;
+import org.apache.lucene.analysis.standard.StandardTokenizer;
+import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
+import org.tartarus.snowball.ext.RussianStemmer;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Пул конвейеров стеминга, эквивалентных {@link RussianAnalyzer}.
+ * <p>
+ * Конвейер (токенизатор, фильтры, стеммер) создаётся один раз и переиспользуется между запросами
+ * через {@link Tokenizer#setReader}. В каждый момент конвейер принадлежит одному потоку;
+ * ThreadLocal не используется, поэтому пул не разрастается при работе на виртуальных потоках.
+ */
+public class AnalyzerPool {
+
+    private final Queue<Pipeline> idle = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger idleCount = new AtomicInteger();
+    private final int maxIdle;
+
+    public AnalyzerPool() {
+        this(Runtime.getRuntime().availableProcessors() * 2);
+    }
+
+    public AnalyzerPool(int maxIdle) {
+        this.maxIdle = maxIdle;
+    }
+
+    /**
+     * Токенизация и стеминг текста
+     */
+    public List<String> analyze(String text) {
+        Pipeline pipeline = borrow();
+        List<String> result = new ArrayList<>();
+        try {
+            pipeline.source.setReader(new StringReader(text));
+            pipeline.stream.reset();
+            while (pipeline.stream.incrementToken()) {
+                result.add(pipeline.term.toString());
+            }
+            pipeline.stream.end();
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        } finally {
+            release(pipeline);
+        }
+        return result;
+    }
+
+    private Pipeline borrow() {
+        Pipeline pipeline = idle.poll();
+        if (pipeline == null) {
+            return new Pipeline();
+        }
+        idleCount.decrementAndGet();
+        return pipeline;
+    }
+
+    private void release(Pipeline pipeline) {
+        try {
+            // close() возвращает токенизатор в состояние, допускающее повторный setReader
+            pipeline.stream.close();
+        } catch (IOException e) {
+            return; // Конвейер в неизвестном состоянии - не возвращаем его в пул
+        }
+        if (idleCount.incrementAndGet() <= maxIdle) {
+            idle.offer(pipeline);
+        } else {
+            idleCount.decrementAndGet();
+        }
+    }
+
+    /**
+     * Цепочка фильтров RussianAnalyzer: StandardTokenizer -> LowerCase -> Stop -> Snowball(Russian)
+     */
+    private static class Pipeline {
+        private final Tokenizer source = new StandardTokenizer();
+        private final TokenStream stream = new SnowballFilter(
+                new StopFilter(new LowerCaseFilter(source), RussianAnalyzer.getDefaultStopSet()),
+                new RussianStemmer()
+        );
+        private final CharTermAttribute term = stream.addAttribute(CharTermAttribute.class);
+    }
+}
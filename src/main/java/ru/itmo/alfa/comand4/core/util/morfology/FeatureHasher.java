@@ -0,0 +1,71 @@
+package ru.itmo.alfa.comand4.core.util.morfology;
+
+import java.io.Serializable;
+import java.util.List;
+
+/**
+ * Знаковое хэширование признаков (hashing trick): термин проецируется в пространство
+ * фиксированной размерности 2^bits без словаря.
+ * <p>
+ * Младшие bits бит хэша задают столбец, старший бит - знак вклада, чтобы коллизии
+ * в среднем взаимно гасились. Память не зависит от размера корпуса.
+ */
+public final class FeatureHasher implements TermIndex, Serializable {
+
+    private final int bits;
+    private final int mask;
+
+    public FeatureHasher(int bits) {
+        if (bits < 1 || bits > 24) {
+            throw new IllegalArgumentException("Количество бит хэширования должно быть в диапазоне 1..24: " + bits);
+        }
+        this.bits = bits;
+        this.mask = (1 << bits) - 1;
+    }
+
+    public int getBits() {
+        return bits;
+    }
+
+    @Override
+    public int dimension() {
+        return 1 << bits;
+    }
+
+    @Override
+    public int indexOf(String term) {
+        int hash = 0x811C9DC5;
+        for (int i = 0; i < term.length(); i++) {
+            hash = (hash ^ term.charAt(i)) * 0x01000193;
+        }
+        return code(hash);
+    }
+
+    @Override
+    public int indexOf(char[] chars, int offset, int length) {
+        int hash = 0x811C9DC5;
+        for (int i = offset; i < offset + length; i++) {
+            hash = (hash ^ chars[i]) * 0x01000193;
+        }
+        return code(hash);
+    }
+
+    @Override
+    public List<String> terms() {
+        return List.of();
+    }
+
+    /**
+     * FNV-1a с финальным перемешиванием (fmix32 из MurmurHash3)
+     */
+    private int code(int hash) {
+        hash ^= hash >>> 16;
+        hash *= 0x85EBCA6B;
+        hash ^= hash >>> 13;
+        hash *= 0xC2B2AE35;
+        hash ^= hash >>> 16;
+
+        int column = hash & mask;
+        return hash < 0 ? column | NEGATIVE : column;
+    }
+}
@@ -1,7 +1,7 @@
 package ru.itmo.alfa.comand4.core.util.morfology;
 
 import jakarta.annotation.PostConstruct;
-import lombok.AllArgsConstructor;
+import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Component;
 import ru.itmo.alfa.comand4.configuration.FeatureToggle;
 
@@ -10,14 +10,17 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 
 @Component
-@AllArgsConstructor
+@RequiredArgsConstructor
 public class StopWords {
 
     private Set<String> words = new HashSet<>();;
+    private TermDictionary dictionary = TermDictionary.of(List.of());
     private final FeatureToggle feature;
 
     @PostConstruct
@@ -43,10 +46,17 @@ public class StopWords {
             if (line.length() >= size)
                 words.add(line);
         }
+
+        // Компилируем для проверки слов прямо из буфера токенизатора
+        dictionary = TermDictionary.of(new ArrayList<>(words));
     }
 
     public boolean contains(String word) {
         return words.contains(word);
     }
 
+    public boolean contains(char[] chars, int offset, int length) {
+        return dictionary.indexOf(chars, offset, length) >= 0;
+    }
+
 }
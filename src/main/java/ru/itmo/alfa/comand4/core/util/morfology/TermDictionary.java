@@ -0,0 +1,119 @@
+package ru.itmo.alfa.comand4.core.util.morfology;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Неизменяемый словарь терминов: индекс термина -> термин и обратный поиск за O(1).
+ * <p>
+ * Обратный индекс - хэш-таблица с открытой адресацией (линейное пробирование),
+ * термины интернированы, поэтому совпадение по ссылке проверяется до equals.
+ */
+public final class TermDictionary implements TermIndex, Serializable {
+
+    private final String[] terms;
+    private final int[] slots; // индекс термина + 1, 0 - пустая ячейка
+    private final int mask;
+
+    private TermDictionary(String[] terms) {
+        this.terms = terms;
+
+        // Заполненность таблицы не больше 50%
+        int capacity = Integer.highestOneBit(Math.max(2, terms.length) * 2 - 1) << 1;
+        this.slots = new int[capacity];
+        this.mask = capacity - 1;
+
+        for (int i = 0; i < terms.length; i++) {
+            int slot = spread(terms[i].hashCode()) & mask;
+            while (slots[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            slots[slot] = i + 1;
+        }
+    }
+
+    /**
+     * Компиляция словаря; порядок терминов сохраняется, повторы отбрасываются
+     */
+    public static TermDictionary of(List<String> vocabulary) {
+        String[] terms = vocabulary.stream()
+                .map(String::intern)
+                .distinct()
+                .toArray(String[]::new);
+        return new TermDictionary(terms);
+    }
+
+    /**
+     * Индекс термина или -1, если термина нет в словаре
+     */
+    @Override
+    public int indexOf(String term) {
+        int slot = spread(term.hashCode()) & mask;
+        for (int entry; (entry = slots[slot]) != 0; slot = (slot + 1) & mask) {
+            String candidate = terms[entry - 1];
+            if (candidate == term || candidate.equals(term)) {
+                return entry - 1;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Индекс термина, заданного фрагментом массива символов, без создания строки
+     */
+    @Override
+    public int indexOf(char[] chars, int offset, int length) {
+        // Тот же хэш, что и String.hashCode()
+        int hash = 0;
+        for (int i = offset; i < offset + length; i++) {
+            hash = 31 * hash + chars[i];
+        }
+
+        int slot = spread(hash) & mask;
+        for (int entry; (entry = slots[slot]) != 0; slot = (slot + 1) & mask) {
+            if (regionEquals(terms[entry - 1], chars, offset, length)) {
+                return entry - 1;
+            }
+        }
+        return -1;
+    }
+
+    public String term(int index) {
+        return terms[index];
+    }
+
+    public int size() {
+        return terms.length;
+    }
+
+    @Override
+    public int dimension() {
+        return terms.length;
+    }
+
+    /**
+     * Термины в порядке индексов
+     */
+    @Override
+    public List<String> terms() {
+        return Collections.unmodifiableList(Arrays.asList(terms));
+    }
+
+    private static boolean regionEquals(String term, char[] chars, int offset, int length) {
+        if (term.length() != length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (term.charAt(i) != chars[offset + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int spread(int hash) {
+        return (hash ^ (hash >>> 16)) * 0x9E3779B1;
+    }
+}
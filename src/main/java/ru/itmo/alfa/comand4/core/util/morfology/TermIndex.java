@@ -0,0 +1,48 @@
+package ru.itmo.alfa.comand4.core.util.morfology;
+
+import java.util.List;
+
+/**
+ * Отображение термина в столбец пространства признаков
+ */
+public interface TermIndex {
+
+    /**
+     * Флаг в коде термина: вклад термина в признак отрицательный (знаковое хэширование)
+     */
+    int NEGATIVE = 1 << 30;
+
+    /**
+     * Размерность пространства признаков
+     */
+    int dimension();
+
+    /**
+     * Код термина (столбец с возможным флагом {@link #NEGATIVE}) или -1, если термин не учитывается
+     */
+    int indexOf(String term);
+
+    /**
+     * То же, что {@link #indexOf(String)}, для фрагмента массива символов без создания строки
+     */
+    int indexOf(char[] chars, int offset, int length);
+
+    /**
+     * Известные термины в порядке столбцов; пусто, если словарь не хранится
+     */
+    List<String> terms();
+
+    /**
+     * Столбец признака по коду термина
+     */
+    static int column(int code) {
+        return code & ~NEGATIVE;
+    }
+
+    /**
+     * Знак вклада термина по его коду
+     */
+    static int sign(int code) {
+        return (code & NEGATIVE) == 0 ? 1 : -1;
+    }
+}
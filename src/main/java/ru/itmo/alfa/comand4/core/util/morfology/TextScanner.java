@@ -0,0 +1,125 @@
+package ru.itmo.alfa.comand4.core.util.morfology;
+
+/**
+ * Однопроходный токенизатор текста обращения.
+ * <p>
+ * Заменяет цепочку toLowerCase / replaceAll / split / filter: символы приводятся к нижнему регистру
+ * по одному, словом считается непрерывная последовательность символов [a-zа-яё0-9],
+ * короткие слова и стоп-слова отбрасываются сразу. Текущее слово хранится в переиспользуемом буфере,
+ * поэтому на каждый токен ничего не создаётся.
+ */
+public final class TextScanner {
+
+    private final CharSequence text;
+    private final int minLength;
+    private final StopWords stopWords;
+
+    private char[] word = new char[32];
+    private int length;
+    private int pos;
+
+    /**
+     * @param minLength минимальная длина слова, 0 - без ограничения
+     * @param stopWords словарь стоп-слов или null, если фильтр отключен
+     */
+    public TextScanner(CharSequence text, int minLength, StopWords stopWords) {
+        this.text = text;
+        this.minLength = minLength;
+        this.stopWords = stopWords;
+    }
+
+    /**
+     * Переход к следующему слову, прошедшему фильтры
+     *
+     * @return false, если текст закончился
+     */
+    public boolean next() {
+        int end = text.length();
+        length = 0;
+
+        while (pos < end) {
+            char c = Character.toLowerCase(text.charAt(pos++));
+            if (isWordChar(c)) {
+                append(c);
+            } else if (length > 0) {
+                if (accept()) {
+                    return true;
+                }
+                length = 0;
+            }
+        }
+
+        return length > 0 && accept();
+    }
+
+    /**
+     * Буфер текущего слова; действителен до следующего вызова {@link #next()}
+     */
+    public char[] buffer() {
+        return word;
+    }
+
+    public int length() {
+        return length;
+    }
+
+    /**
+     * Текущее слово в виде строки
+     */
+    public String word() {
+        return new String(word, 0, length);
+    }
+
+    /**
+     * Нормализованный текст: нижний регистр, слова через один пробел (вход для анализатора Lucene)
+     */
+    public static String normalize(CharSequence text) {
+        StringBuilder result = new StringBuilder(text.length());
+        boolean separator = false;
+
+        for (int i = 0; i < text.length(); i++) {
+            char c = Character.toLowerCase(text.charAt(i));
+            if (isWordChar(c)) {
+                if (separator && result.length() > 0) {
+                    result.append(' ');
+                }
+                result.append(c);
+                separator = false;
+            } else {
+                separator = true;
+            }
+        }
+
+        return result.toString();
+    }
+
+    /**
+     * Верхняя граница количества слов в тексте (слова разделены хотя бы одним символом)
+     */
+    public static int maxTokens(CharSequence text) {
+        return text.length() / 2 + 1;
+    }
+
+    private boolean accept() {
+        if (length < minLength) {
+            return false;
+        }
+        return stopWords == null || !stopWords.contains(word, 0, length);
+    }
+
+    private void append(char c) {
+        if (length == word.length) {
+            char[] grown = new char[word.length * 2];
+            System.arraycopy(word, 0, grown, 0, length);
+            word = grown;
+        }
+        word[length++] = c;
+    }
+
+    private static boolean isWordChar(char c) {
+        return (c >= 'a' && c <= 'z')
+                || (c >= 'а' && c <= 'я')
+                || c == 'ё'
+                || (c >= '0' && c <= '9');
+    }
+}
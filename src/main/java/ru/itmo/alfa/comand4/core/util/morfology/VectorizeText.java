@@ -2,7 +2,11 @@ package ru.itmo.alfa.comand4.core.util.morfology;
 
 import lombok.AllArgsConstructor;
 import org.springframework.stereotype.Component;
+import ru.itmo.alfa.comand4.core.model.SparseMatrix;
+
 import java.util.*;
+import java.util.function.IntFunction;
+import java.util.stream.IntStream;
 
 @Component
 @AllArgsConstructor
@@ -10,122 +14,155 @@ public class VectorizeText {
 
     private final Vocabulary vocabularyService;
 
+    /**
+     * Количество документов в блоке при параллельном построении TF матрицы
+     */
+    private static final int CHUNK_SIZE = 256;
+
     /**
      * Векторизация текста
      */
-    public double[][] vectorize(List<String> documents, List<String> vocabulary) {
-        // Создаем матрицу TF: Term Frequency
-        double[][] tfMatrix = getTFMatrix(documents, vocabulary);
+    public SparseMatrix vectorize(List<String> documents, TermIndex vocabulary) {
+        // Создаем разреженную матрицу TF: Term Frequency
+        SparseMatrix tfMatrix = getTFMatrix(documents.size(), vocabulary, doc -> termCodes(documents.get(doc), vocabulary));
 
         // Применяем TF-IDF
         return applyTFIDF(tfMatrix, documents.size());
     }
 
-    public double[] vectorize(String text, List<String> vocabulary) {
-        // Для одного документа используем TF (без IDF, т.к. нужна статистика по корпусу)
-        return getTFVector(text, vocabulary);
+    /**
+     * Векторизация уже токенизированного корпуса (см. {@link Vocabulary#tokenize})
+     */
+    public SparseMatrix vectorizeTokens(List<List<String>> tokens, TermIndex vocabulary) {
+        SparseMatrix tfMatrix = getTFMatrix(tokens.size(), vocabulary, doc -> tokens.get(doc).stream()
+                .mapToInt(vocabulary::indexOf)
+                .filter(index -> index != -1)
+                .toArray());
+
+        return applyTFIDF(tfMatrix, tokens.size());
     }
 
     /**
-     * Получение TF матрицы
+     * TF вектор одного документа в виде разреженной строки: стоимость дальнейших операций пропорциональна
+     * количеству терминов документа, а не размерности словаря
      */
-    private double[][] getTFMatrix(List<String> documents, List<String> vocabulary) {
-        double[][] tfMatrix = new double[documents.size()][];
-        for (int i = 0; i < documents.size(); i++) {
-            tfMatrix[i] = getTFVector(documents.get(i), vocabulary);
-        }
-        return tfMatrix;
+    public SparseMatrix vectorizeRow(String text, TermIndex vocabulary) {
+        return vectorizeCodes(termCodes(text, vocabulary), vocabulary);
     }
 
     /**
-     * Получение TF вектора для одного документа
+     * TF строка по уже найденным кодам терминов (см. {@link #termCodes}); массив кодов не изменяется
      */
-    private double[] getTFVector(String text, List<String> vocabulary) {
-        double[] vector = new double[vocabulary.size()];
-        List<String> words = vocabularyService.preprocessText(text);
-
-        // Считаем raw frequency
-        for (String word : words) {
-            int index = vocabulary.indexOf(word);
-            if (index != -1) {
-                vector[index]++;
+    public SparseMatrix vectorizeCodes(int[] codes, TermIndex vocabulary) {
+        SparseMatrix.Builder builder = new SparseMatrix.Builder(vocabulary.dimension());
+        appendTFRow(builder, codes.clone());
+        return builder.build();
+    }
+
+    /**
+     * TF матрица пачки документов одним блоком по уже найденным кодам терминов: строка i - та же,
+     * что вернул бы {@link #vectorizeCodes(int[], TermIndex)} для codes.get(i); массивы кодов не изменяются
+     */
+    public SparseMatrix vectorizeCodes(List<int[]> codes, TermIndex vocabulary) {
+        return getTFMatrix(codes.size(), vocabulary, doc -> codes.get(doc).clone());
+    }
+
+    /**
+     * Коды терминов документа в порядке появления - нормализованное представление текста
+     * (после токенизации, фильтра стоп-слов и стемминга), от которого зависит векторизация
+     */
+    public int[] termCodes(String text, TermIndex vocabulary) {
+        int[] indices = new int[TextScanner.maxTokens(text)];
+        int count = vocabularyService.termIndices(text, vocabulary, indices);
+        return Arrays.copyOf(indices, count);
+    }
+
+    /**
+     * Получение TF матрицы в формате CSR.
+     * Блоки документов обрабатываются параллельно в fork-join пуле и склеиваются в исходном порядке
+     *
+     * @param termIndices индексы терминов словаря для документа с заданным номером
+     */
+    private SparseMatrix getTFMatrix(int documents, TermIndex vocabulary, IntFunction<int[]> termIndices) {
+        int chunks = (documents + CHUNK_SIZE - 1) / CHUNK_SIZE;
+
+        List<SparseMatrix> blocks = IntStream.range(0, chunks)
+                .parallel()
+                .mapToObj(chunk -> {
+                    SparseMatrix.Builder builder = new SparseMatrix.Builder(vocabulary.dimension());
+                    int end = Math.min(documents, (chunk + 1) * CHUNK_SIZE);
+                    for (int doc = chunk * CHUNK_SIZE; doc < end; doc++) {
+                        appendTFRow(builder, termIndices.apply(doc));
+                    }
+                    return builder.build();
+                })
+                .toList();
+
+        return SparseMatrix.concat(vocabulary.dimension(), blocks);
+    }
+
+    /**
+     * Добавление TF строки одного документа: только ненулевые термины
+     */
+    private void appendTFRow(SparseMatrix.Builder builder, int[] indices) {
+        // Коды терминов документа, отсортированные по столбцу для подсчета повторов
+        int count = indices.length;
+        for (int i = 0; i < count; i++) {
+            indices[i] = TermIndex.column(indices[i]) << 1 | (TermIndex.sign(indices[i]) < 0 ? 1 : 0);
+        }
+        Arrays.sort(indices);
+
+        // Считаем raw frequency (со знаком при хэшировании) и нормализуем по длине документа
+        int[] columns = new int[count];
+        double[] values = new double[count];
+        int length = 0;
+        for (int i = 0; i < count; i++) {
+            int column = indices[i] >>> 1;
+            int sign = (indices[i] & 1) == 0 ? 1 : -1;
+            if (length > 0 && columns[length - 1] == column) {
+                values[length - 1] += sign;
+            } else {
+                columns[length] = column;
+                values[length++] = sign;
             }
         }
 
-        // Нормализуем по длине документа
-        double docLength = Arrays.stream(vector).sum();
-        if (docLength > 0) {
-            for (int i = 0; i < vector.length; i++) {
-                vector[i] /= docLength;
+        // Разнознаковые коллизии могут обнулить признак - такие элементы не храним
+        int nonZero = 0;
+        for (int i = 0; i < length; i++) {
+            if (values[i] != 0) {
+                columns[nonZero] = columns[i];
+                values[nonZero++] = values[i] / count;
             }
         }
 
-        return vector;
+        builder.addRow(columns, values, nonZero);
     }
 
     /**
      * Применение TF-IDF к TF матрице
      */
-    private double[][] applyTFIDF(double[][] tfMatrix, int totalDocs) {
-        int numDocs = tfMatrix.length;
-        int vocabSize = tfMatrix[0].length;
-        double[][] tfidfMatrix = new double[numDocs][vocabSize];
-
+    private SparseMatrix applyTFIDF(SparseMatrix tfMatrix, int totalDocs) {
         // Вычисляем IDF для каждого слова
         double[] idf = calculateIDF(tfMatrix, totalDocs);
 
-        // Применяем TF-IDF: TF * IDF
-        for (int i = 0; i < numDocs; i++) {
-            for (int j = 0; j < vocabSize; j++) {
-                tfidfMatrix[i][j] = tfMatrix[i][j] * idf[j];
-            }
-        }
-
-        // Нормализуем векторы (L2 норма)
-        normalizeVectorsL2(tfidfMatrix);
-
-        return tfidfMatrix;
+        // Применяем TF-IDF: TF * IDF и нормализуем векторы (L2 норма)
+        return tfMatrix.scaleColumns(idf).normalizeRows();
     }
 
     /**
      * Вычисление IDF значений
      */
-    private double[] calculateIDF(double[][] tfMatrix, int totalDocs) {
-        int vocabSize = tfMatrix[0].length;
-        double[] idf = new double[vocabSize];
-
-        for (int j = 0; j < vocabSize; j++) {
-            int docsWithWord = 0;
-            for (int i = 0; i < tfMatrix.length; i++) {
-                if (tfMatrix[i][j] > 0) {
-                    docsWithWord++;
-                }
-            }
+    private double[] calculateIDF(SparseMatrix tfMatrix, int totalDocs) {
+        int[] docsWithWord = tfMatrix.columnCounts();
+        double[] idf = new double[docsWithWord.length];
+
+        for (int j = 0; j < idf.length; j++) {
             // Smooth IDF: log((N + 1) / (df + 1)) + 1
-            idf[j] = Math.log((double) (totalDocs + 1) / (docsWithWord + 1)) + 1;
+            idf[j] = Math.log((double) (totalDocs + 1) / (docsWithWord[j] + 1)) + 1;
         }
 
         return idf;
     }
 
-    /**
-     * Нормализация векторов по L2 норме
-     */
-    private void normalizeVectorsL2(double[][] vectors) {
-        for (double[] vector : vectors) {
-            double norm = 0.0;
-
-            for (double value : vector) {
-                norm += value * value;
-            }
-            norm = Math.sqrt(norm);
-
-            if (norm > 0) {
-                for (int j = 0; j < vector.length; j++) {
-                    vector[j] /= norm;
-                }
-            }
-        }
-    }
-
 }
@@ -1,19 +1,15 @@
 package ru.itmo.alfa.comand4.core.util.morfology;
 
 import lombok.AllArgsConstructor;
-import org.apache.lucene.analysis.Analyzer;
-import org.apache.lucene.analysis.TokenStream;
-import org.apache.lucene.analysis.ru.RussianAnalyzer;
-import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
 import org.springframework.stereotype.Component;
 import ru.itmo.alfa.comand4.configuration.FeatureToggle;
 
-import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 @Component
 @AllArgsConstructor
@@ -23,106 +19,150 @@ public class Vocabulary {
 
     private final StopWords stopWords;
 
-    public List<String> getVocabulary(List<String> documents) {
-        // Создаем словарь слов
-        Map<String, Integer> wordIndex = new HashMap<>();
-        List<String> vocabulary = new ArrayList<>();
+    private final AnalyzerPool analyzerPool = new AnalyzerPool();
 
-        // Сначала собираем все уникальные слова из всех документов
-        for (String doc : documents) {
-            List<String> words = preprocessText(doc);
+    /**
+     * Построение словаря корпуса, скомпилированного для поиска индекса термина за O(1)
+     */
+    public TermDictionary getVocabulary(List<String> documents) {
+        return buildVocabulary(tokenize(documents));
+    }
 
-            for (String word : words) {
-                if (!wordIndex.containsKey(word)) {
-                    wordIndex.put(word, vocabulary.size());
-                    vocabulary.add(word);
-                }
-            }
-        }
+    /**
+     * Параллельная токенизация корпуса; порядок документов сохраняется
+     */
+    public List<List<String>> tokenize(List<String> documents) {
+        return documents.parallelStream()
+                .map(this::preprocessText)
+                .toList();
+    }
+
+    /**
+     * Построение словаря по уже токенизированному корпусу.
+     * <p>
+     * Частоты считаются в отдельных картах на каждый поток fork-join пула и затем сливаются.
+     * Порядок терминов совпадает с последовательным проходом: по первому появлению в корпусе,
+     * а при ограничении размера - по убыванию частоты (при равной частоте - по первому появлению).
+     */
+    public TermDictionary buildVocabulary(List<List<String>> tokens) {
+        Map<String, WordStats> stats = IntStream.range(0, tokens.size())
+                .parallel()
+                .collect(HashMap::new, (map, doc) -> countWords(map, doc, tokens.get(doc)), Vocabulary::mergeStats);
+
+        Comparator<Map.Entry<String, WordStats>> byFirstOccurrence =
+                Comparator.comparingLong(entry -> entry.getValue().firstOccurrence);
 
         // Ограничиваем размер словаря (берем самые частые слова)
-        if (vocabulary.size() > 1000) {
-            vocabulary = getTopFrequentWords(documents, 1000);
-            wordIndex.clear();
-            for (int i = 0; i < vocabulary.size(); i++) {
-                wordIndex.put(vocabulary.get(i), i);
-            }
+        Comparator<Map.Entry<String, WordStats>> order = byFirstOccurrence;
+        if (stats.size() > 1000) {
+            order = Comparator.<Map.Entry<String, WordStats>>comparingInt(entry -> entry.getValue().count)
+                    .reversed()
+                    .thenComparing(byFirstOccurrence);
         }
 
-        return vocabulary;
+        return TermDictionary.of(stats.entrySet().stream()
+                .sorted(order)
+                .limit(1000)
+                .map(Map.Entry::getKey)
+                .toList());
     }
 
-    /**
-     * Получить самые частые слова
-     *
-     * @param documents
-     * @param maxWords
-     * @return
-     */
-    private List<String> getTopFrequentWords(List<String> documents, int maxWords) {
-        Map<String, Integer> wordFreq = new HashMap<>();
-
-        // Считаем частоту всех слов
-        for (String doc : documents) {
-            List<String> words = preprocessText(doc);
-            for (String word : words) {
-                wordFreq.put(word, wordFreq.getOrDefault(word, 0) + 1);
-            }
+    private static void countWords(Map<String, WordStats> stats, int doc, List<String> words) {
+        for (int i = 0; i < words.size(); i++) {
+            long occurrence = ((long) doc << 32) | i;
+            WordStats word = stats.computeIfAbsent(words.get(i), w -> new WordStats(occurrence));
+            word.count++;
         }
+    }
 
-        // Сортируем по убыванию частоты и берем топ
-        return wordFreq.entrySet().stream()
-                .sorted(Map.Entry.<String, Integer>comparingByValue().reversed())
-                .limit(maxWords)
-                .map(Map.Entry::getKey)
-                .collect(Collectors.toList());
+    private static void mergeStats(Map<String, WordStats> target, Map<String, WordStats> source) {
+        source.forEach((word, stats) -> target.merge(word, stats, (a, b) -> {
+            a.count += b.count;
+            a.firstOccurrence = Math.min(a.firstOccurrence, b.firstOccurrence);
+            return a;
+        }));
     }
 
+    /**
+     * Частота слова в корпусе и позиция первого появления (документ << 32 | номер слова)
+     */
+    private static class WordStats {
+        private int count;
+        private long firstOccurrence;
 
-    public List<String> preprocessText(String text) {
-        List<String> result;
+        private WordStats(long firstOccurrence) {
+            this.firstOccurrence = firstOccurrence;
+        }
+    }
 
-        // Приведение к нижнему регистру, удаление лишних символов
-        text = text.toLowerCase()
-                .replaceAll("[^a-zа-яё0-9\\s]", " ") // Удаляем спецсимволы
-                .replaceAll("\\s+", " ") // Убираем лишние пробелы
-                .trim();
+    public List<String> preprocessText(String text) {
+        List<String> result = new ArrayList<>();
 
         // Применение стеминга, если требуется
         if (feature.getMorfology().getSteming()) {
-            result = new ArrayList<>();
-            try (Analyzer analyzer = new RussianAnalyzer()) {
-                try (TokenStream tokenStream = analyzer.tokenStream("content", text)) {
-                    CharTermAttribute attribute = tokenStream.addAttribute(CharTermAttribute.class);
-                    tokenStream.reset();
-
-                    while (tokenStream.incrementToken()) {
-                        String term = attribute.toString();
-                        result.add(term);
-                    }
-
-                    tokenStream.end();
-                } catch (IOException e) {
-                    throw new RuntimeException(e);
+            for (String stem : analyzerPool.analyze(TextScanner.normalize(text))) {
+                if (acceptStem(stem)) {
+                    result.add(stem);
                 }
             }
-        } else {
-            // Морфология отключена
-            String[] r = text.split("\\s+");
-            result = List.of(r);
+            return result;
         }
 
-        // Применение ограничения на количество символов
-        int size = feature.getMorfology().getWordlenght();
-        if (size > 0) {
-            result = result.stream().filter(s -> s.length() >= size).toList();
+        // Морфология отключена: регистр, спецсимволы, длина и стоп-слова - за один проход
+        TextScanner scanner = newScanner(text);
+        while (scanner.next()) {
+            result.add(scanner.word());
+        }
+        return result;
+    }
+
+    /**
+     * Коды терминов (см. {@link TermIndex}) в тексте, в порядке появления.
+     * Без стеминга слова ищутся в словаре прямо из буфера токенизатора, без промежуточных строк
+     *
+     * @param out буфер длиной не меньше {@link TextScanner#maxTokens(CharSequence)}
+     * @return количество записанных индексов
+     */
+    public int termIndices(String text, TermIndex dictionary, int[] out) {
+        int count = 0;
+
+        if (feature.getMorfology().getSteming()) {
+            for (String stem : analyzerPool.analyze(TextScanner.normalize(text))) {
+                int index = acceptStem(stem) ? dictionary.indexOf(stem) : -1;
+                if (index != -1) {
+                    out[count++] = index;
+                }
+            }
+            return count;
         }
-        // Применение списка стоп-слов
-        if (feature.getMorfology().getStopwords()) {
-            result = result.stream().filter(v -> !stopWords.contains(v)).toList();
+
+        TextScanner scanner = newScanner(text);
+        while (scanner.next()) {
+            int index = dictionary.indexOf(scanner.buffer(), 0, scanner.length());
+            if (index != -1) {
+                out[count++] = index;
+            }
         }
+        return count;
+    }
 
-        return result;
+    private TextScanner newScanner(String text) {
+        return new TextScanner(
+                text,
+                Math.max(0, feature.getMorfology().getWordlenght()),
+                feature.getMorfology().getStopwords() ? stopWords : null
+        );
+    }
+
+    /**
+     * Ограничение на количество символов и список стоп-слов для результата стеминга
+     */
+    private boolean acceptStem(String stem) {
+        int size = feature.getMorfology().getWordlenght();
+        if (size > 0 && stem.length() < size) {
+            return false;
+        }
+        return !feature.getMorfology().getStopwords() || !stopWords.contains(stem);
     }
 
 }
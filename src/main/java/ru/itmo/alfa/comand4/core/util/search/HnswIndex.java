@@ -0,0 +1,604 @@
+package ru.itmo.alfa.comand4.core.util.search;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import ru.itmo.alfa.comand4.core.model.DocumentFrequencies;
+import ru.itmo.alfa.comand4.core.model.FeatureMatrix;
+import ru.itmo.alfa.comand4.core.model.SparseMatrix;
+
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Queue;
+import java.util.Random;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Индекс приближённого поиска ближайших соседей HNSW (иерархический граф малого мира) по строкам матрицы признаков.
+ * <p>
+ * Каждая строка - вершина графа на уровнях 0..level, уровень выбирается случайно с геометрическим
+ * распределением (множитель 1 / ln m). Поиск спускается жадно с верхнего уровня к нулевому и на нулевом
+ * просматривает ef лучших кандидатов, поэтому стоимость запроса ~ O(log n × ef × m) скалярных произведений
+ * вместо n при полном переборе. Соседи вершины отбираются эвристикой разнообразия: кандидат пропускается,
+ * если он ближе к уже выбранному соседу, чем к вершине (свободные места добираются пропущенными).
+ * <p>
+ * Расстояние - квадрат евклидова ||q||^2 + ||x||^2 - 2 q·x; для строк TF-IDF с L2 нормализацией
+ * оно монотонно косинусной близости. Запрос остаётся разреженным: q·x считается слиянием ненулевых элементов
+ * запроса и строки, без плотного вектора размерности словаря. Строки с нулевой нормой (документ без терминов)
+ * в граф не вставляются: их расстояние ||q||^2 до любого запроса меньше, чем у настоящих совпадений
+ * с косинусом ниже 1/2. Индекс после построения не изменяется и безопасен для параллельных запросов.
+ * <p>
+ * Граф хранится плоско (CSR по вершинам и уровням) в {@link IntBuffer}, нормы строк - в {@link DoubleBuffer}:
+ * индекс из отображённого снимка читает их со страниц файла, не копируя в кучу.
+ * <p>
+ * Вместе с индексом хранятся документные частоты, с которыми взвешены его строки: после дообучения модели
+ * частоты снимка меняются, а запросы к индексу должны взвешиваться так же, как векторы в графе.
+ */
+public class HnswIndex {
+
+    /**
+     * Пул отметок посещённых вершин (как {@link ru.itmo.alfa.comand4.core.util.morfology.AnalyzerPool}):
+     * массив на n вершин переиспользуется между запросами, в каждый момент принадлежит одному запросу;
+     * ThreadLocal не используется, так как запросы выполняются на виртуальных потоках
+     */
+    private final Queue<Visited> idleVisited = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger idleVisitedCount = new AtomicInteger();
+    private final int maxIdleVisited = Runtime.getRuntime().availableProcessors() * 2;
+
+    private final FeatureMatrix vectors;
+    private final DocumentFrequencies frequencies;
+    private final DoubleBuffer squaredNorms;
+    private final int m;
+    private final int efConstruction;
+    private final int entryPoint;
+    private final FlatLinks links;
+
+    /**
+     * Индекс по готовому графу (из снимка)
+     *
+     * @param frequencies  документные частоты, с которыми взвешены строки vectors
+     * @param nodeLevels   n + 1 смещений: уровни вершины node - ячейки nodeLevels[node]..nodeLevels[node + 1]
+     * @param levelPtr     смещения списков соседей ячеек в neighbors (число ячеек + 1)
+     * @param neighbors    списки соседей всех вершин и уровней подряд
+     * @param squaredNorms квадраты норм строк vectors
+     */
+    public HnswIndex(FeatureMatrix vectors, DocumentFrequencies frequencies, int m, int efConstruction, int entryPoint,
+                     IntBuffer nodeLevels, IntBuffer levelPtr, IntBuffer neighbors, DoubleBuffer squaredNorms) {
+        this.vectors = vectors;
+        this.frequencies = frequencies;
+        this.squaredNorms = squaredNorms;
+        this.m = m;
+        this.efConstruction = efConstruction;
+        this.entryPoint = entryPoint;
+        this.links = new FlatLinks(nodeLevels, levelPtr, neighbors);
+    }
+
+    /**
+     * Построение индекса: вершины вставляются по порядку строк
+     *
+     * @param frequencies    документные частоты, с которыми взвешены строки vectors
+     * @param m              число соседей на уровнях выше нулевого (на нулевом - 2m)
+     * @param efConstruction ширина поиска соседей при вставке
+     */
+    public static HnswIndex build(FeatureMatrix vectors, DocumentFrequencies frequencies,
+                                  int m, int efConstruction, long seed) {
+        int n = vectors.rows();
+        DoubleBuffer squaredNorms = DoubleBuffer.wrap(squaredNorms(vectors));
+        int[][][] links = new int[n][][];
+        Links growing = new ArrayLinks(links);
+        double levelScale = 1 / Math.log(Math.max(m, 2));
+        Random random = new Random(seed);
+
+        Visited visited = new Visited(n, 2 * m);
+        int entryPoint = -1;
+        int maxLevel = -1;
+        for (int node = 0; node < n; node++) {
+            int level = (int) (-Math.log(1 - random.nextDouble()) * levelScale);
+            if (squaredNorms.get(node) == 0) {
+                // Пустая строка остаётся вершиной без соседей и из поиска недостижима
+                links[node] = new int[1][0];
+                continue;
+            }
+            links[node] = new int[level + 1][0];
+            if (entryPoint < 0) {
+                entryPoint = node;
+                maxLevel = level;
+                continue;
+            }
+
+            Query query = Query.node(node, squaredNorms.get(node));
+            Candidate nearest = new Candidate(entryPoint, query.distance(vectors, squaredNorms, entryPoint));
+            for (int l = maxLevel; l > level; l--) {
+                nearest = searchLayer(vectors, squaredNorms, growing, visited, query, List.of(nearest), 1, l).get(0);
+            }
+
+            List<Candidate> entries = List.of(nearest);
+            for (int l = Math.min(level, maxLevel); l >= 0; l--) {
+                List<Candidate> found = searchLayer(vectors, squaredNorms, growing, visited, query, entries, efConstruction, l);
+                links[node][l] = selectNeighbors(vectors, found, m);
+
+                // Обратные связи; переполненный список соседа отбирается заново той же эвристикой
+                int maxLinks = l == 0 ? 2 * m : m;
+                for (int neighbor : links[node][l]) {
+                    int[] current = links[neighbor][l];
+                    int[] extended = Arrays.copyOf(current, current.length + 1);
+                    extended[current.length] = node;
+                    if (extended.length > maxLinks) {
+                        List<Candidate> candidates = new ArrayList<>(extended.length);
+                        for (int other : extended) {
+                            candidates.add(new Candidate(other, vectors.squaredDistance(neighbor, other)));
+                        }
+                        candidates.sort(Candidate.BY_DISTANCE);
+                        extended = selectNeighbors(vectors, candidates, maxLinks);
+                    }
+                    links[neighbor][l] = extended;
+                }
+                entries = found;
+            }
+
+            if (level > maxLevel) {
+                entryPoint = node;
+                maxLevel = level;
+            }
+        }
+        return flatten(vectors, frequencies, squaredNorms, m, efConstruction, entryPoint, links);
+    }
+
+    /**
+     * Готовый граф в плоском виде: списки соседей links[вершина][уровень] подряд
+     */
+    private static HnswIndex flatten(FeatureMatrix vectors, DocumentFrequencies frequencies, DoubleBuffer squaredNorms,
+                                     int m, int efConstruction, int entryPoint, int[][][] links) {
+        int n = links.length;
+        int[] nodeLevels = new int[n + 1];
+        for (int node = 0; node < n; node++) {
+            nodeLevels[node + 1] = nodeLevels[node] + links[node].length;
+        }
+        int[] levelPtr = new int[nodeLevels[n] + 1];
+        int slot = 0;
+        for (int[][] levels : links) {
+            for (int[] neighbors : levels) {
+                levelPtr[slot + 1] = levelPtr[slot] + neighbors.length;
+                slot++;
+            }
+        }
+        int[] neighbors = new int[levelPtr[slot]];
+        slot = 0;
+        for (int[][] levels : links) {
+            for (int[] level : levels) {
+                System.arraycopy(level, 0, neighbors, levelPtr[slot++], level.length);
+            }
+        }
+        return new HnswIndex(vectors, frequencies, m, efConstruction, entryPoint,
+                IntBuffer.wrap(nodeLevels), IntBuffer.wrap(levelPtr), IntBuffer.wrap(neighbors), squaredNorms);
+    }
+
+    public FeatureMatrix vectors() {
+        return vectors;
+    }
+
+    /**
+     * Документные частоты обучающей выборки индекса: ими взвешиваются запросы к {@link #search}
+     */
+    public DocumentFrequencies frequencies() {
+        return frequencies;
+    }
+
+    public int size() {
+        return links.nodeLevels.limit() - 1;
+    }
+
+    public int m() {
+        return m;
+    }
+
+    public int efConstruction() {
+        return efConstruction;
+    }
+
+    public int entryPoint() {
+        return entryPoint;
+    }
+
+    /**
+     * Плоский граф и нормы строк для записи снимка (только для чтения, см. конструктор)
+     */
+    public IntBuffer nodeLevels() {
+        return links.nodeLevels.asReadOnlyBuffer();
+    }
+
+    public IntBuffer levelPtr() {
+        return links.levelPtr.asReadOnlyBuffer();
+    }
+
+    public IntBuffer neighbors() {
+        return links.neighbors.asReadOnlyBuffer();
+    }
+
+    public DoubleBuffer squaredNorms() {
+        return squaredNorms.asReadOnlyBuffer();
+    }
+
+    /**
+     * k приближённо ближайших строк по убыванию косинусной близости
+     *
+     * @param query разреженная матрица запросов в пространстве признаков индекса
+     * @param row   строка запроса
+     * @param ef    ширина поиска на нулевом уровне (не меньше k): больше - точнее и медленнее
+     */
+    public List<Neighbor> search(SparseMatrix query, int row, int k, int ef) {
+        return search(Query.sparse(query, row), k, ef);
+    }
+
+    /**
+     * Точный поиск полным перебором (эталон для оценки полноты)
+     */
+    public List<Neighbor> exact(SparseMatrix query, int row, int k) {
+        return exact(Query.sparse(query, row), k);
+    }
+
+    private List<Neighbor> search(Query q, int k, int ef) {
+        if (entryPoint < 0 || k <= 0) {
+            return List.of();
+        }
+
+        Visited visited = borrowVisited();
+        try {
+            Candidate nearest = new Candidate(entryPoint, q.distance(vectors, squaredNorms, entryPoint));
+            for (int l = links.levels(entryPoint) - 1; l > 0; l--) {
+                nearest = searchLayer(vectors, squaredNorms, links, visited, q, List.of(nearest), 1, l).get(0);
+            }
+            List<Candidate> found = searchLayer(vectors, squaredNorms, links, visited, q, List.of(nearest),
+                    Math.max(ef, k), 0);
+            return neighbors(q, found, k);
+        } finally {
+            releaseVisited(visited);
+        }
+    }
+
+    private Visited borrowVisited() {
+        Visited visited = idleVisited.poll();
+        if (visited == null) {
+            return new Visited(size(), links.maxDegree);
+        }
+        idleVisitedCount.decrementAndGet();
+        return visited;
+    }
+
+    private void releaseVisited(Visited visited) {
+        if (idleVisitedCount.incrementAndGet() <= maxIdleVisited) {
+            idleVisited.offer(visited);
+        } else {
+            idleVisitedCount.decrementAndGet();
+        }
+    }
+
+    private List<Neighbor> exact(Query q, int k) {
+        List<Candidate> all = new ArrayList<>(size());
+        for (int row = 0; row < size(); row++) {
+            if (squaredNorms.get(row) > 0) {
+                all.add(new Candidate(row, q.distance(vectors, squaredNorms, row)));
+            }
+        }
+        all.sort(Candidate.BY_DISTANCE);
+        return neighbors(q, all, k);
+    }
+
+    /**
+     * Полнота и задержка поиска для нескольких ef на выборке строк корпуса (строка-запрос из ответа исключается).
+     * Сосед считается найденным, если он не дальше k-го соседа точного поиска
+     */
+    public void benchmark(int k, int samples, int[] efs, long seed) {
+        if (size() <= k || samples <= 0) {
+            return;
+        }
+        Random random = new Random(seed);
+        int[] rows = new int[Math.min(samples, size())];
+        for (int i = 0; i < rows.length; i++) {
+            rows[i] = random.nextInt(size());
+        }
+
+        Query[] queries = new Query[rows.length];
+        double[] thresholds = new double[rows.length];
+        long start = System.nanoTime();
+        for (int i = 0; i < rows.length; i++) {
+            queries[i] = Query.node(rows[i], squaredNorms.get(rows[i]));
+            List<Neighbor> exact = exclude(exact(queries[i], k + 1), rows[i], k);
+            thresholds[i] = exact.isEmpty() ? 0.0 : exact.get(exact.size() - 1).getDistance();
+        }
+        double exactMicros = (System.nanoTime() - start) / 1e3 / rows.length;
+
+        for (int ef : efs) {
+            int hits = 0;
+            long elapsed = 0;
+            for (int i = 0; i < rows.length; i++) {
+                long begin = System.nanoTime();
+                List<Neighbor> found = search(queries[i], k + 1, ef);
+                elapsed += System.nanoTime() - begin;
+                for (Neighbor neighbor : exclude(found, rows[i], k)) {
+                    if (neighbor.getDistance() <= thresholds[i] + 1e-12) {
+                        hits++;
+                    }
+                }
+            }
+            System.out.printf("HNSW ef=%d: recall@%d %.3f, %.1f мкс на запрос (полный перебор %.1f мкс)%n",
+                    ef, k, (double) hits / (rows.length * k), elapsed / 1e3 / rows.length, exactMicros);
+        }
+    }
+
+    private static List<Neighbor> exclude(List<Neighbor> neighbors, int row, int k) {
+        List<Neighbor> result = new ArrayList<>(k);
+        for (Neighbor neighbor : neighbors) {
+            if (neighbor.getRow() != row && result.size() < k) {
+                result.add(neighbor);
+            }
+        }
+        return result;
+    }
+
+    private List<Neighbor> neighbors(Query query, List<Candidate> candidates, int k) {
+        List<Neighbor> result = new ArrayList<>(Math.min(k, candidates.size()));
+        for (int i = 0; i < candidates.size() && i < k; i++) {
+            Candidate candidate = candidates.get(i);
+            // q·x из квадрата расстояния, косинус - с учётом норм
+            double dot = (query.squaredNorm + squaredNorms.get(candidate.node) - candidate.distance) / 2;
+            double norms = Math.sqrt(query.squaredNorm * squaredNorms.get(candidate.node));
+            result.add(new Neighbor(candidate.node, norms > 0 ? dot / norms : 0.0, candidate.distance));
+        }
+        return result;
+    }
+
+    /**
+     * Поиск ef ближайших вершин уровня от точек входа; результат по возрастанию расстояния
+     */
+    private static List<Candidate> searchLayer(FeatureMatrix vectors, DoubleBuffer squaredNorms, Links links,
+                                               Visited visited, Query query, List<Candidate> entries, int ef, int level) {
+        visited.reset();
+        PriorityQueue<Candidate> candidates = new PriorityQueue<>(Candidate.BY_DISTANCE);
+        PriorityQueue<Candidate> results = new PriorityQueue<>(Candidate.BY_DISTANCE.reversed());
+        for (Candidate entry : entries) {
+            visited.visit(entry.node);
+            candidates.add(entry);
+            results.add(entry);
+            if (results.size() > ef) {
+                results.poll();
+            }
+        }
+
+        while (!candidates.isEmpty()) {
+            Candidate current = candidates.poll();
+            if (current.distance > results.peek().distance) {
+                break;
+            }
+            int degree = links.neighbors(current.node, level, visited.neighbors);
+            for (int i = 0; i < degree; i++) {
+                int neighbor = visited.neighbors[i];
+                if (!visited.visit(neighbor)) {
+                    continue;
+                }
+                double distance = query.distance(vectors, squaredNorms, neighbor);
+                if (results.size() < ef || distance < results.peek().distance) {
+                    Candidate candidate = new Candidate(neighbor, distance);
+                    candidates.add(candidate);
+                    results.add(candidate);
+                    if (results.size() > ef) {
+                        results.poll();
+                    }
+                }
+            }
+        }
+
+        List<Candidate> found = new ArrayList<>(results);
+        found.sort(Candidate.BY_DISTANCE);
+        return found;
+    }
+
+    /**
+     * Эвристика отбора соседей из кандидатов, упорядоченных по возрастанию расстояния
+     */
+    private static int[] selectNeighbors(FeatureMatrix vectors, List<Candidate> candidates, int count) {
+        List<Candidate> selected = new ArrayList<>(count);
+        List<Candidate> skipped = new ArrayList<>();
+        for (Candidate candidate : candidates) {
+            if (selected.size() >= count) {
+                break;
+            }
+            boolean diverse = true;
+            for (Candidate chosen : selected) {
+                if (vectors.squaredDistance(candidate.node, chosen.node) < candidate.distance) {
+                    diverse = false;
+                    break;
+                }
+            }
+            (diverse ? selected : skipped).add(candidate);
+        }
+        for (int i = 0; i < skipped.size() && selected.size() < count; i++) {
+            selected.add(skipped.get(i));
+        }
+
+        int[] neighbors = new int[selected.size()];
+        for (int i = 0; i < neighbors.length; i++) {
+            neighbors[i] = selected.get(i).node;
+        }
+        return neighbors;
+    }
+
+    private static double[] squaredNorms(FeatureMatrix vectors) {
+        double[] norms = new double[vectors.rows()];
+        for (int row = 0; row < norms.length; row++) {
+            norms[row] = vectors.squaredNorm(row);
+        }
+        return norms;
+    }
+
+    /**
+     * Запрос и квадрат его нормы: строка разреженной матрицы запросов
+     * или вершина самого индекса (при построении и оценке полноты)
+     */
+    private static class Query {
+
+        private final SparseMatrix matrix;
+        private final int row;
+        private final double squaredNorm;
+
+        private Query(SparseMatrix matrix, int row, double squaredNorm) {
+            this.matrix = matrix;
+            this.row = row;
+            this.squaredNorm = squaredNorm;
+        }
+
+        static Query sparse(SparseMatrix matrix, int row) {
+            return new Query(matrix, row, matrix.squaredNorm(row));
+        }
+
+        static Query node(int node, double squaredNorm) {
+            return new Query(null, node, squaredNorm);
+        }
+
+        double distance(FeatureMatrix vectors, DoubleBuffer squaredNorms, int other) {
+            if (matrix == null) {
+                return vectors.squaredDistance(row, other);
+            }
+            return Math.max(0.0, squaredNorm + squaredNorms.get(other) - 2 * vectors.dot(other, matrix, row));
+        }
+    }
+
+    /**
+     * Списки соседей вершин по уровням
+     */
+    private interface Links {
+
+        int levels(int node);
+
+        /**
+         * Копирует соседей вершины на уровне в target (не короче максимальной степени); возвращает их число
+         */
+        int neighbors(int node, int level, int[] target);
+    }
+
+    /**
+     * Граф во время построения: links[вершина][уровень], списки заменяются целиком
+     */
+    private static class ArrayLinks implements Links {
+
+        private final int[][][] links;
+
+        ArrayLinks(int[][][] links) {
+            this.links = links;
+        }
+
+        @Override
+        public int levels(int node) {
+            return links[node].length;
+        }
+
+        @Override
+        public int neighbors(int node, int level, int[] target) {
+            int[] neighbors = links[node][level];
+            System.arraycopy(neighbors, 0, target, 0, neighbors.length);
+            return neighbors.length;
+        }
+    }
+
+    /**
+     * Готовый граф в плоском виде; чтение только абсолютное, поэтому безопасно для параллельных запросов
+     */
+    private static class FlatLinks implements Links {
+
+        private final IntBuffer nodeLevels;
+        private final IntBuffer levelPtr;
+        private final IntBuffer neighbors;
+        private final int maxDegree;
+
+        FlatLinks(IntBuffer nodeLevels, IntBuffer levelPtr, IntBuffer neighbors) {
+            this.nodeLevels = nodeLevels;
+            this.levelPtr = levelPtr;
+            this.neighbors = neighbors;
+            int maxDegree = 0;
+            for (int slot = 0; slot < levelPtr.limit() - 1; slot++) {
+                maxDegree = Math.max(maxDegree, levelPtr.get(slot + 1) - levelPtr.get(slot));
+            }
+            this.maxDegree = maxDegree;
+        }
+
+        @Override
+        public int levels(int node) {
+            return nodeLevels.get(node + 1) - nodeLevels.get(node);
+        }
+
+        @Override
+        public int neighbors(int node, int level, int[] target) {
+            int slot = nodeLevels.get(node) + level;
+            int from = levelPtr.get(slot);
+            int degree = levelPtr.get(slot + 1) - from;
+            neighbors.get(from, target, 0, degree);
+            return degree;
+        }
+    }
+
+    /**
+     * Отметки посещённых вершин поколениями: вершина посещена, если её отметка равна текущему поколению,
+     * поэтому очистка перед поиском - увеличение счётчика, а не обнуление массива.
+     * Заодно хранит буфер соседей просматриваемой вершины
+     */
+    private static class Visited {
+
+        private final int[] marks;
+        private final int[] neighbors;
+        private int generation;
+
+        Visited(int size, int maxDegree) {
+            this.marks = new int[size];
+            this.neighbors = new int[maxDegree];
+        }
+
+        void reset() {
+            if (++generation == 0) {
+                // Переполнение счётчика: старые отметки могли бы совпасть с новым поколением
+                Arrays.fill(marks, 0);
+                generation = 1;
+            }
+        }
+
+        /**
+         * Отмечает вершину; false - уже была посещена в этом поиске
+         */
+        boolean visit(int node) {
+            if (marks[node] == generation) {
+                return false;
+            }
+            marks[node] = generation;
+            return true;
+        }
+    }
+
+    private static class Candidate {
+
+        static final Comparator<Candidate> BY_DISTANCE = Comparator.comparingDouble((Candidate c) -> c.distance)
+                .thenComparingInt(c -> c.node);
+
+        private final int node;
+        private final double distance;
+
+        Candidate(int node, double distance) {
+            this.node = node;
+            this.distance = distance;
+        }
+    }
+
+    /**
+     * Найденная строка: номер в корпусе, косинусная близость к запросу и квадрат расстояния
+     */
+    @Getter
+    @AllArgsConstructor
+    public static class Neighbor {
+        private final int row;
+        private final double similarity;
+        private final double distance;
+    }
+}
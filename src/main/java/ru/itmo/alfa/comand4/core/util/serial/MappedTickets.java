@@ -0,0 +1,50 @@
+package ru.itmo.alfa.comand4.core.util.serial;
+
+import ru.itmo.alfa.comand4.core.dto.SupportTicket;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractList;
+import java.util.RandomAccess;
+
+/**
+ * Заявки корпуса поверх секции снимка: таблица смещений и записи читаются со страниц файла,
+ * заявка разбирается только при обращении к ней (ответ поиска похожих заявок), поэтому объём кучи
+ * не зависит от размера корпуса. Чтение только абсолютное - список безопасен для параллельного доступа
+ */
+class MappedTickets extends AbstractList<SupportTicket> implements RandomAccess {
+
+    static final int FIELDS = 6;
+
+    private final IntBuffer offsets;
+    private final ByteBuffer records;
+
+    /**
+     * @param offsets смещения записей в records (число заявок + 1)
+     * @param records записи: для каждого поля длина в байтах и UTF-8
+     */
+    MappedTickets(IntBuffer offsets, ByteBuffer records) {
+        this.offsets = offsets;
+        this.records = records;
+    }
+
+    @Override
+    public SupportTicket get(int index) {
+        int from = offsets.get(index);
+        ByteBuffer record = records.slice(from, offsets.get(index + 1) - from).order(ByteOrder.LITTLE_ENDIAN);
+        String[] fields = new String[FIELDS];
+        for (int f = 0; f < FIELDS; f++) {
+            byte[] bytes = new byte[record.getInt()];
+            record.get(bytes);
+            fields[f] = new String(bytes, StandardCharsets.UTF_8);
+        }
+        return new SupportTicket(fields);
+    }
+
+    @Override
+    public int size() {
+        return offsets.limit() - 1;
+    }
+}
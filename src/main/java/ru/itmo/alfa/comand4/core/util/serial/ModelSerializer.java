@@ -1,40 +1,818 @@
 package ru.itmo.alfa.comand4.core.util.serial;
 
+import ru.itmo.alfa.comand4.core.dto.SupportTicket;
+import ru.itmo.alfa.comand4.core.model.ClusterAggregate;
+import ru.itmo.alfa.comand4.core.model.ClusterProfile;
+import ru.itmo.alfa.comand4.core.model.ClusterProfiles;
+import ru.itmo.alfa.comand4.core.model.DenseMatrix;
+import ru.itmo.alfa.comand4.core.model.DocumentFrequencies;
+import ru.itmo.alfa.comand4.core.model.FeatureMatrix;
+import ru.itmo.alfa.comand4.core.model.FloatSparseMatrix;
+import ru.itmo.alfa.comand4.core.model.MappedSparseMatrix;
 import ru.itmo.alfa.comand4.core.model.ModelData;
-import ru.itmo.alfa.comand4.core.util.clustering.ClusterProfiler;
+import ru.itmo.alfa.comand4.core.model.Projection;
+import ru.itmo.alfa.comand4.core.model.SparseMatrix;
+import ru.itmo.alfa.comand4.core.util.clustering.VectorKernels;
+import ru.itmo.alfa.comand4.core.util.morfology.FeatureHasher;
+import ru.itmo.alfa.comand4.core.util.morfology.TermDictionary;
+import ru.itmo.alfa.comand4.core.util.morfology.TermIndex;
+import ru.itmo.alfa.comand4.core.util.search.HnswIndex;
 import smile.clustering.KMeans;
 
-import java.io.*;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32C;
 
 /**
- * Сохранение и загрузка ранее созданного файла модели
+ * Сохранение и загрузка снимка модели в бинарном формате.
+ * <p>
+ * Файл состоит из заголовка, каталога секций и самих секций; порядок байт little-endian,
+ * каждая секция начинается с границы 8 байт и защищена собственной контрольной суммой CRC32C.
+ * <pre>
+ * заголовок (16 байт): magic "TSKM", версия формата, количество секций, CRC32C каталога
+ * каталог (24 байта на секцию): идентификатор, CRC32C секции, смещение от начала файла, длина
+ * </pre>
+ * Массивы (центроиды, назначения, CSR матрица признаков) пишутся и читаются целиком,
+ * без поэлементного разбора; секция признаков необязательна. Версия 2: заявки корпуса и граф HNSW
+ * с векторами для поиска похожих заявок; версия 3: разреженная случайная проекция хранится в CSR;
+ * версия 4: строки с нулевой нормой не входят в граф HNSW; версия 5: если векторы индекса - та же матрица,
+ * что и признаки корпуса, секция векторов индекса хранит ссылку на секцию признаков вместо второй копии;
+ * версия 6: заявки корпуса с таблицей смещений, граф HNSW плоским CSR с нормами строк - обе секции
+ * читаются на месте, без разбора в кучу; версия 7: документные частоты индекса HNSW, если после дообучения
+ * они отличаются от частот модели.
  */
 public class ModelSerializer {
 
-    public static void saveModel(KMeans model, List<String> vocabulary, ClusterProfiler clusterProfiler, double[][] features, String filename) {
-        try (ObjectOutputStream oos = new ObjectOutputStream(new FileOutputStream(filename))) {
-            oos.writeObject(model);
-            oos.writeObject(vocabulary);
-            oos.writeObject(clusterProfiler);
-            oos.writeObject(features);
-            System.out.println("Модель сохранена: " + filename);
-        } catch (IOException e) {
-            System.err.println("Ошибка сохранения: " + e.getMessage());
+    static final int MAGIC = 0x4D4B5354; // "TSKM"
+    static final int FORMAT_VERSION = 7;
+    static final int HEADER_BYTES = 16;
+    static final int ENTRY_BYTES = 24;
+
+    // Секции снимка
+    static final int META = 1;
+    static final int VOCABULARY = 2;
+    static final int FREQUENCIES = 3;
+    static final int CENTROIDS = 4;
+    static final int ASSIGNMENTS = 5;
+    static final int PROFILES = 6;
+    static final int PROJECTION = 7;
+    static final int FEATURES = 8;
+    static final int TICKETS = 9;
+    static final int INDEX = 10;
+    static final int INDEX_VECTORS = 11;
+    static final int INDEX_FREQUENCIES = 12;
+
+    // Флаги секции META
+    static final int SPHERICAL = 1;
+    static final int FLOAT32 = 2;
+
+    // Виды словаря
+    static final int DICTIONARY = 1;
+    static final int HASHER = 2;
+
+    // Виды матрицы признаков
+    static final int SPARSE64 = 1;
+    static final int SPARSE32 = 2;
+    static final int DENSE = 3;
+    static final int SAME_AS_FEATURES = 4; // только в секции векторов индекса: ссылка на секцию FEATURES
+
+    /**
+     * Запись снимка; файл подменяется атомарно, читатели не увидят его недописанным
+     *
+     * @param withFeatures сохранять ли матрицу признаков корпуса (нужна метрикам качества и визуализации)
+     */
+    public static void save(ModelData modelData, Path path, boolean withFeatures) throws IOException {
+        List<Integer> ids = new ArrayList<>();
+        List<ByteBuffer> sections = new ArrayList<>();
+
+        KMeans model = modelData.getModel();
+        add(ids, sections, META, writeMeta(modelData));
+        add(ids, sections, VOCABULARY, writeVocabulary(modelData.getVocabulary()));
+        add(ids, sections, FREQUENCIES, writeFrequencies(modelData.getDocumentFrequencies()));
+        add(ids, sections, CENTROIDS, writeCentroids(model.centroids));
+        add(ids, sections, ASSIGNMENTS, new SectionBuffer(4 + 4 * model.y.length).putInt(model.y.length).putInts(model.y).finish());
+        add(ids, sections, PROFILES, writeProfiles(modelData.getClusterProfiles()));
+        if (modelData.getProjection() != null)
+            add(ids, sections, PROJECTION, writeProjection(modelData.getProjection()));
+        FeatureMatrix features = withFeatures ? modelData.getFeatures() : null;
+        if (features != null)
+            add(ids, sections, FEATURES, writeFeatures(features));
+        add(ids, sections, TICKETS, writeTickets(modelData.getTickets()));
+        add(ids, sections, INDEX, writeIndex(modelData.getTicketIndex()));
+        // FLOAT64 без проекции: индекс построен по самой матрице признаков, вторая копия не пишется
+        FeatureMatrix vectors = modelData.getTicketIndex().vectors();
+        add(ids, sections, INDEX_VECTORS, vectors == features
+                ? new SectionBuffer(8).putInt(SAME_AS_FEATURES).putInt(0).finish()
+                : writeFeatures(vectors));
+        // После дообучения частоты модели обновлены, а индекс взвешен частотами обучения
+        DocumentFrequencies indexFrequencies = modelData.getTicketIndex().frequencies();
+        if (indexFrequencies != modelData.getDocumentFrequencies())
+            add(ids, sections, INDEX_FREQUENCIES, writeFrequencies(indexFrequencies));
+
+        // Каталог: секции идут сразу за ним, размер заголовка и записей кратен 8
+        ByteBuffer directory = ByteBuffer.allocate(ENTRY_BYTES * sections.size()).order(ByteOrder.LITTLE_ENDIAN);
+        long offset = HEADER_BYTES + directory.capacity();
+        for (int s = 0; s < sections.size(); s++) {
+            ByteBuffer section = sections.get(s);
+            directory.putInt(ids.get(s)).putInt(crc(section)).putLong(offset).putLong(section.remaining());
+            offset += section.remaining();
+        }
+        directory.flip();
+
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN)
+                .putInt(MAGIC).putInt(FORMAT_VERSION).putInt(sections.size()).putInt(crc(directory))
+                .flip();
+
+        ByteBuffer[] buffers = new ByteBuffer[sections.size() + 2];
+        buffers[0] = header;
+        buffers[1] = directory;
+        for (int s = 0; s < sections.size(); s++) {
+            buffers[s + 2] = sections.get(s);
+        }
+
+        Path parent = path.toAbsolutePath().getParent();
+        Files.createDirectories(parent);
+        // Временный файл с обычными правами (снимок читают и другие процессы); суффикс pid разводит писателей
+        Path temp = path.resolveSibling(path.getFileName() + "." + ProcessHandle.current().pid() + ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING)) {
+                long total = offset;
+                long written = 0;
+                while (written < total) {
+                    written += channel.write(buffers);
+                }
+                channel.force(true);
+            }
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * Чтение снимка с проверкой формата и контрольных сумм; версия загруженной модели - 0
+     */
+    public static ModelData load(Path path) throws IOException {
+        ByteBuffer file;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Снимок слишком велик: " + channel.size() + " байт");
+            }
+            file = ByteBuffer.allocate((int) channel.size());
+            while (file.hasRemaining() && channel.read(file) >= 0) {
+                // читаем до конца файла
+            }
+            file.flip();
+        }
+        return decode(file.order(ByteOrder.LITTLE_ENDIAN), path, false);
+    }
+
+    /**
+     * Снимок, отображённый в память только для чтения: разреженные матрицы признаков и векторов индекса
+     * ({@link MappedSparseMatrix}), заявки корпуса ({@link MappedTickets}) и граф HNSW не копируются в кучу,
+     * страницы файла общие для всех процессов на хосте. В кучу разбираются словарь, документные частоты,
+     * центроиды, профили и назначения кластеров: их размер зависит от словаря и числа кластеров,
+     * а назначения - 4 байта на заявку
+     */
+    public static ModelData map(Path path) throws IOException {
+        MappedByteBuffer file;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Снимок слишком велик для отображения: " + channel.size() + " байт");
+            }
+            // Отображение остаётся действительным после закрытия канала
+            file = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        return decode(file.order(ByteOrder.LITTLE_ENDIAN), path, true);
+    }
+
+    private static ModelData decode(ByteBuffer file, Path path, boolean mapped) throws IOException {
+        Map<Integer, ByteBuffer> sections = sections(file, path);
+        ByteBuffer meta = required(sections, META, path);
+        int flags = meta.getInt();
+        meta.getInt(); // резерв
+        double distortion = meta.getDouble();
+
+        TermIndex vocabulary = readVocabulary(required(sections, VOCABULARY, path));
+        DocumentFrequencies documentFrequencies = readFrequencies(required(sections, FREQUENCIES, path));
+        double[][] centroids = readCentroids(required(sections, CENTROIDS, path));
+        ByteBuffer assignments = required(sections, ASSIGNMENTS, path);
+        int[] y = new int[assignments.getInt()];
+        assignments.asIntBuffer().get(y);
+        ClusterProfiles clusterProfiles = readProfiles(required(sections, PROFILES, path));
+        Projection projection = sections.containsKey(PROJECTION) ? readProjection(sections.get(PROJECTION)) : null;
+        FeatureMatrix features = sections.containsKey(FEATURES) ? readFeatures(sections.get(FEATURES), mapped) : null;
+        List<SupportTicket> tickets = readTickets(required(sections, TICKETS, path));
+        DocumentFrequencies indexFrequencies = sections.containsKey(INDEX_FREQUENCIES)
+                ? readFrequencies(sections.get(INDEX_FREQUENCIES)) : documentFrequencies;
+        HnswIndex ticketIndex = readIndex(required(sections, INDEX, path),
+                readIndexVectors(required(sections, INDEX_VECTORS, path), features, mapped, path), indexFrequencies);
+
+        KMeans model = new KMeans(distortion, centroids, y);
+        float[][] centroids32 = (flags & FLOAT32) != 0 ? VectorKernels.toFloat(centroids) : null;
+        return new ModelData(0, model, vocabulary, clusterProfiles, features, centroids32, projection,
+                (flags & SPHERICAL) != 0, documentFrequencies, tickets, ticketIndex);
+    }
+
+    /**
+     * Проверка заголовка и каталога; секции возвращаются срезами файла с позицией в начале
+     */
+    static Map<Integer, ByteBuffer> sections(ByteBuffer file, Path path) throws IOException {
+        if (file.limit() < HEADER_BYTES || file.getInt(0) != MAGIC) {
+            throw new IOException("Не снимок модели: " + path);
+        }
+        if (file.getInt(4) != FORMAT_VERSION) {
+            throw new IOException("Неподдерживаемая версия формата " + file.getInt(4) + ": " + path);
+        }
+
+        int count = file.getInt(8);
+        if (count < 0 || HEADER_BYTES + (long) ENTRY_BYTES * count > file.limit()) {
+            throw new IOException("Повреждён каталог секций: " + path);
+        }
+        ByteBuffer directory = file.slice(HEADER_BYTES, ENTRY_BYTES * count).order(ByteOrder.LITTLE_ENDIAN);
+        if (crc(directory) != file.getInt(12)) {
+            throw new IOException("Не совпадает контрольная сумма каталога: " + path);
+        }
+
+        Map<Integer, ByteBuffer> sections = new HashMap<>();
+        for (int s = 0; s < count; s++) {
+            int id = directory.getInt();
+            int checksum = directory.getInt();
+            long offset = directory.getLong();
+            long length = directory.getLong();
+            if (offset < 0 || length < 0 || offset + length > file.limit()) {
+                throw new IOException("Секция " + id + " выходит за границы файла: " + path);
+            }
+            ByteBuffer section = file.slice((int) offset, (int) length).order(ByteOrder.LITTLE_ENDIAN);
+            if (crc(section) != checksum) {
+                throw new IOException("Не совпадает контрольная сумма секции " + id + ": " + path);
+            }
+            sections.put(id, section);
+        }
+        return sections;
+    }
+
+    private static ByteBuffer required(Map<Integer, ByteBuffer> sections, int id, Path path) throws IOException {
+        ByteBuffer section = sections.get(id);
+        if (section == null) {
+            throw new IOException("В снимке нет секции " + id + ": " + path);
+        }
+        return section;
+    }
+
+    private static void add(List<Integer> ids, List<ByteBuffer> sections, int id, ByteBuffer section) {
+        ids.add(id);
+        sections.add(section);
+    }
+
+    private static int crc(ByteBuffer buffer) {
+        CRC32C crc = new CRC32C();
+        crc.update(buffer.duplicate());
+        return (int) crc.getValue();
+    }
+
+    private static ByteBuffer writeMeta(ModelData modelData) {
+        int flags = (modelData.isSpherical() ? SPHERICAL : 0) | (modelData.getCentroids32() != null ? FLOAT32 : 0);
+        return new SectionBuffer(16)
+                .putInt(flags)
+                .putInt(0)
+                .putDouble(modelData.getModel().distortion)
+                .finish();
+    }
+
+    private static ByteBuffer writeVocabulary(TermIndex vocabulary) {
+        if (vocabulary instanceof FeatureHasher hasher) {
+            return new SectionBuffer(8).putInt(HASHER).putInt(hasher.getBits()).finish();
+        }
+        if (!(vocabulary instanceof TermDictionary dictionary)) {
+            throw new IllegalArgumentException("Неизвестный тип словаря: " + vocabulary.getClass().getName());
+        }
+
+        // Смещения терминов и общий блок UTF-8: термин читается без разбора предыдущих
+        byte[][] terms = new byte[dictionary.size()][];
+        int[] offsets = new int[terms.length + 1];
+        for (int i = 0; i < terms.length; i++) {
+            terms[i] = dictionary.term(i).getBytes(StandardCharsets.UTF_8);
+            offsets[i + 1] = offsets[i] + terms[i].length;
+        }
+
+        SectionBuffer buffer = new SectionBuffer(8 + 4 * offsets.length + offsets[terms.length])
+                .putInt(DICTIONARY)
+                .putInt(terms.length)
+                .putInts(offsets);
+        for (byte[] term : terms) {
+            buffer.putBytes(term);
+        }
+        return buffer.finish();
+    }
+
+    private static TermIndex readVocabulary(ByteBuffer section) {
+        int kind = section.getInt();
+        if (kind == HASHER) {
+            return new FeatureHasher(section.getInt());
+        }
+
+        int count = section.getInt();
+        int[] offsets = new int[count + 1];
+        section.asIntBuffer().get(offsets);
+        section.position(section.position() + 4 * offsets.length);
+
+        byte[] bytes = new byte[offsets[count]];
+        section.get(bytes);
+        List<String> terms = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            terms.add(new String(bytes, offsets[i], offsets[i + 1] - offsets[i], StandardCharsets.UTF_8));
+        }
+        return TermDictionary.of(terms);
+    }
+
+    private static ByteBuffer writeFrequencies(DocumentFrequencies frequencies) {
+        int columns = frequencies.columns();
+        SectionBuffer buffer = new SectionBuffer(8 + 4 * columns)
+                .putInt(frequencies.documents())
+                .putInt(columns);
+        for (int c = 0; c < columns; c++) {
+            buffer.putInt(frequencies.count(c));
+        }
+        return buffer.finish();
+    }
+
+    private static DocumentFrequencies readFrequencies(ByteBuffer section) {
+        int documents = section.getInt();
+        int[] counts = new int[section.getInt()];
+        section.asIntBuffer().get(counts);
+        return new DocumentFrequencies(counts, documents);
+    }
+
+    private static ByteBuffer writeCentroids(double[][] centroids) {
+        int dimension = centroids.length > 0 ? centroids[0].length : 0;
+        SectionBuffer buffer = new SectionBuffer(8 + 8L * centroids.length * dimension)
+                .putInt(centroids.length)
+                .putInt(dimension);
+        for (double[] centroid : centroids) {
+            buffer.putDoubles(centroid);
+        }
+        return buffer.finish();
+    }
+
+    private static double[][] readCentroids(ByteBuffer section) {
+        double[][] centroids = new double[section.getInt()][section.getInt()];
+        for (double[] centroid : centroids) {
+            section.asDoubleBuffer().get(centroid);
+            section.position(section.position() + 8 * centroid.length);
+        }
+        return centroids;
+    }
+
+    private static ByteBuffer writeProfiles(ClusterProfiles clusterProfiles) {
+        SectionBuffer buffer = new SectionBuffer(1024);
+
+        buffer.putInt(clusterProfiles.profiles().size());
+        for (Map.Entry<Integer, ClusterProfile> entry : clusterProfiles.profiles().entrySet()) {
+            ClusterProfile profile = entry.getValue();
+            buffer.putInt(entry.getKey())
+                    .putString(profile.getCategoryName())
+                    .putStrings(profile.getKeywords())
+                    .putStrings(profile.getRecommendedSolutions())
+                    .putInt(profile.getExpectedResolutionTime());
+        }
+
+        buffer.putInt(clusterProfiles.aggregates().size());
+        for (Map.Entry<Integer, ClusterAggregate> entry : clusterProfiles.aggregates().entrySet()) {
+            ClusterAggregate aggregate = entry.getValue();
+            buffer.putInt(entry.getKey());
+            putCounts(buffer, aggregate.wordFrequencies());
+            putCounts(buffer, aggregate.solutionFrequencies());
+            buffer.putInt(aggregate.categoryCounts().size());
+            aggregate.categoryCounts().forEach((category, count) -> buffer.putString(category).putLong(count));
+            buffer.putLong(aggregate.resolutionTimeSum()).putInt(aggregate.tickets());
+        }
+        return buffer.finish();
+    }
+
+    private static ClusterProfiles readProfiles(ByteBuffer section) {
+        Map<Integer, ClusterProfile> profiles = new HashMap<>();
+        for (int count = section.getInt(); count > 0; count--) {
+            int clusterId = section.getInt();
+            String categoryName = getString(section);
+            List<String> keywords = getStrings(section);
+            List<String> solutions = getStrings(section);
+            profiles.put(clusterId, new ClusterProfile(categoryName, keywords, solutions, section.getInt()));
+        }
+
+        Map<Integer, ClusterAggregate> aggregates = new HashMap<>();
+        for (int count = section.getInt(); count > 0; count--) {
+            int clusterId = section.getInt();
+            Map<String, Integer> wordFreq = getCounts(section);
+            Map<String, Integer> solutionFreq = getCounts(section);
+            Map<String, Long> categoryCount = new HashMap<>();
+            for (int categories = section.getInt(); categories > 0; categories--) {
+                categoryCount.put(getString(section), section.getLong());
+            }
+            long resolutionTimeSum = section.getLong();
+            int tickets = section.getInt();
+            aggregates.put(clusterId, new ClusterAggregate(wordFreq, solutionFreq, categoryCount, resolutionTimeSum, tickets));
+        }
+        return new ClusterProfiles(profiles, aggregates);
+    }
+
+    private static void putCounts(SectionBuffer buffer, Map<String, Integer> counts) {
+        buffer.putInt(counts.size());
+        counts.forEach((key, count) -> buffer.putString(key).putInt(count));
+    }
+
+    private static Map<String, Integer> getCounts(ByteBuffer section) {
+        Map<String, Integer> counts = new HashMap<>();
+        for (int count = section.getInt(); count > 0; count--) {
+            counts.put(getString(section), section.getInt());
+        }
+        return counts;
+    }
+
+    private static String getString(ByteBuffer section) {
+        byte[] bytes = new byte[section.getInt()];
+        section.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static List<String> getStrings(ByteBuffer section) {
+        List<String> strings = new ArrayList<>();
+        for (int count = section.getInt(); count > 0; count--) {
+            strings.add(getString(section));
+        }
+        return strings;
+    }
+
+    private static ByteBuffer writeProjection(Projection projection) {
+        int input = projection.inputDimension();
+        int dimension = projection.dimension();
+        if (projection.isSparse()) {
+            int nnz = projection.targets().length;
+            return new SectionBuffer(64 + 4L * (input + 1) + 12L * nnz)
+                    .putInt(input)
+                    .putInt(dimension)
+                    .putInt(SPARSE64)
+                    .putInt(nnz)
+                    .putString(projection.getMethod())
+                    .putInts(projection.columnPtr())
+                    .putInts(projection.targets())
+                    .align()
+                    .putDoubles(projection.values())
+                    .finish();
+        }
+
+        SectionBuffer buffer = new SectionBuffer(64 + 8L * input * dimension)
+                .putInt(input)
+                .putInt(dimension)
+                .putInt(DENSE)
+                .putInt(0)
+                .putString(projection.getMethod())
+                .align();
+        for (int j = 0; j < input; j++) {
+            buffer.putDoubles(projection.weights(j));
+        }
+        return buffer.finish();
+    }
+
+    private static Projection readProjection(ByteBuffer section) {
+        int input = section.getInt();
+        int dimension = section.getInt();
+        int kind = section.getInt();
+        int nnz = section.getInt();
+        String method = getString(section);
+
+        if (kind == SPARSE64) {
+            int[] columnPtr = new int[input + 1];
+            int[] targets = new int[nnz];
+            double[] values = new double[nnz];
+            section.asIntBuffer().get(columnPtr);
+            section.position(section.position() + 4 * columnPtr.length);
+            section.asIntBuffer().get(targets);
+            section.position((section.position() + 4 * nnz + 7) & ~7);
+            section.asDoubleBuffer().get(values);
+            return new Projection(method, dimension, columnPtr, targets, values);
+        }
+
+        section.position((section.position() + 7) & ~7);
+
+        double[][] weights = new double[input][dimension];
+        for (double[] row : weights) {
+            section.asDoubleBuffer().get(row);
+            section.position(section.position() + 8 * dimension);
+        }
+        return new Projection(method, weights, dimension);
+    }
+
+    /**
+     * Заявки: число заявок, таблица смещений записей и записи (поля подряд); заявка читается без разбора предыдущих
+     */
+    private static ByteBuffer writeTickets(List<SupportTicket> tickets) {
+        int[] offsets = new int[tickets.size() + 1];
+        SectionBuffer records = new SectionBuffer(1024);
+        for (int i = 0; i < tickets.size(); i++) {
+            SupportTicket ticket = tickets.get(i);
+            for (String field : Arrays.asList(ticket.getConversationId(), ticket.getCustomerIssue(), ticket.getTechResponse(),
+                    ticket.getResolutionTime(), ticket.getIssueCategory(), ticket.getIssueStatus())) {
+                records.putString(field);
+            }
+            offsets[i + 1] = records.position();
+        }
+        ByteBuffer data = records.finish();
+        return new SectionBuffer(8 + 4L * offsets.length + data.remaining())
+                .putInt(tickets.size())
+                .putInts(offsets)
+                .putBytes(data)
+                .finish();
+    }
+
+    private static List<SupportTicket> readTickets(ByteBuffer section) {
+        int count = section.getInt();
+        int recordsStart = section.position() + 4 * (count + 1);
+        return new MappedTickets(
+                section.slice(section.position(), 4 * (count + 1)).order(ByteOrder.LITTLE_ENDIAN).asIntBuffer(),
+                section.slice(recordsStart, section.limit() - recordsStart).order(ByteOrder.LITTLE_ENDIAN));
+    }
+
+    /**
+     * Граф HNSW: параметры, точка входа, размеры массивов, плоский граф (см. {@link HnswIndex}) и нормы строк
+     */
+    private static ByteBuffer writeIndex(HnswIndex index) {
+        IntBuffer nodeLevels = index.nodeLevels();
+        IntBuffer levelPtr = index.levelPtr();
+        IntBuffer neighbors = index.neighbors();
+        DoubleBuffer squaredNorms = index.squaredNorms();
+        return new SectionBuffer(32 + 4L * (nodeLevels.remaining() + levelPtr.remaining() + neighbors.remaining())
+                + 8L * squaredNorms.remaining())
+                .putInt(index.m())
+                .putInt(index.efConstruction())
+                .putInt(index.entryPoint())
+                .putInt(nodeLevels.remaining())
+                .putInt(levelPtr.remaining())
+                .putInt(neighbors.remaining())
+                .putInts(nodeLevels)
+                .putInts(levelPtr)
+                .putInts(neighbors)
+                .align()
+                .putDoubles(squaredNorms)
+                .finish();
+    }
+
+    /**
+     * Граф читается срезами секции без копирования (для отображённого снимка - со страниц файла)
+     */
+    private static HnswIndex readIndex(ByteBuffer section, FeatureMatrix vectors, DocumentFrequencies frequencies) {
+        int m = section.getInt();
+        int efConstruction = section.getInt();
+        int entryPoint = section.getInt();
+        int nodeLevels = section.getInt();
+        int levelPtr = section.getInt();
+        int neighbors = section.getInt();
+
+        int levelPtrStart = section.position() + 4 * nodeLevels;
+        int neighborsStart = levelPtrStart + 4 * levelPtr;
+        int normsStart = (neighborsStart + 4 * neighbors + 7) & ~7;
+        return new HnswIndex(vectors, frequencies, m, efConstruction, entryPoint,
+                section.slice(section.position(), 4 * nodeLevels).order(ByteOrder.LITTLE_ENDIAN).asIntBuffer(),
+                section.slice(levelPtrStart, 4 * levelPtr).order(ByteOrder.LITTLE_ENDIAN).asIntBuffer(),
+                section.slice(neighborsStart, 4 * neighbors).order(ByteOrder.LITTLE_ENDIAN).asIntBuffer(),
+                section.slice(normsStart, 8 * (nodeLevels - 1)).order(ByteOrder.LITTLE_ENDIAN).asDoubleBuffer());
+    }
+
+    private static ByteBuffer writeFeatures(FeatureMatrix features) {
+        int rows = features.rows();
+        if (features instanceof DenseMatrix) {
+            SectionBuffer buffer = new SectionBuffer(16 + 8L * rows * features.cols())
+                    .putInt(DENSE).putInt(rows).putInt(features.cols()).putInt(0);
+            for (int i = 0; i < rows; i++) {
+                buffer.putDoubles(features.toDense(i));
+            }
+            return buffer.finish();
+        }
+
+        if (features instanceof MappedSparseMatrix matrix) {
+            return writeFeatures(matrix.toHeap());
+        }
+
+        if (features instanceof SparseMatrix matrix) {
+            SectionBuffer buffer = writeStructure(SPARSE64, rows, matrix.cols(), matrix.nnz(), 8);
+            for (int i = 0; i <= rows; i++) {
+                buffer.putInt(matrix.rowStart(i));
+            }
+            for (int p = 0; p < matrix.nnz(); p++) {
+                buffer.putInt(matrix.column(p));
+            }
+            buffer.align();
+            for (int p = 0; p < matrix.nnz(); p++) {
+                buffer.putDouble(matrix.value(p));
+            }
+            return buffer.finish();
         }
+
+        if (features instanceof FloatSparseMatrix matrix) {
+            SectionBuffer buffer = writeStructure(SPARSE32, rows, matrix.cols(), matrix.nnz(), 4);
+            for (int i = 0; i <= rows; i++) {
+                buffer.putInt(matrix.rowStart(i));
+            }
+            for (int p = 0; p < matrix.nnz(); p++) {
+                buffer.putInt(matrix.column(p));
+            }
+            buffer.align();
+            for (int p = 0; p < matrix.nnz(); p++) {
+                buffer.putFloat(matrix.value(p));
+            }
+            return buffer.finish();
+        }
+
+        throw new IllegalArgumentException("Неизвестный тип матрицы признаков: " + features.getClass().getName());
+    }
+
+    private static SectionBuffer writeStructure(int kind, int rows, int cols, int nnz, int valueBytes) {
+        return new SectionBuffer(24 + 4L * (rows + 1) + 4L * nnz + (long) valueBytes * nnz)
+                .putInt(kind).putInt(rows).putInt(cols).putInt(nnz);
     }
 
-    public static ModelData loadModel(String filename) {
-        try (ObjectInputStream ois = new ObjectInputStream(new FileInputStream(filename))) {
-            KMeans model = (KMeans) ois.readObject();
-            List<String> vocabulary = (List<String>) ois.readObject();
-            ClusterProfiler clusterProfiler = (ClusterProfiler) ois.readObject();
-            double[][] features = (double[][]) ois.readObject();
-            return new ModelData(model, vocabulary, clusterProfiler, features);
-        } catch (Exception e) {
-            System.err.println("Ошибка загрузки: " + e.getMessage());
-            return null;
+    /**
+     * Векторы индекса: ссылка на уже прочитанную матрицу признаков или отдельная матрица
+     */
+    private static FeatureMatrix readIndexVectors(ByteBuffer section, FeatureMatrix features, boolean mapped,
+                                                 Path path) throws IOException {
+        if (section.getInt(section.position()) != SAME_AS_FEATURES) {
+            return readFeatures(section, mapped);
         }
+        if (features == null) {
+            throw new IOException("Векторы индекса ссылаются на отсутствующую секцию признаков: " + path);
+        }
+        return features;
     }
 
+    private static FeatureMatrix readFeatures(ByteBuffer section, boolean mapped) {
+        int kind = section.getInt();
+        int rows = section.getInt();
+        int cols = section.getInt();
+        int nnz = section.getInt();
+
+        if (kind == DENSE) {
+            double[][] data = new double[rows][cols];
+            for (double[] row : data) {
+                section.asDoubleBuffer().get(row);
+                section.position(section.position() + 8 * cols);
+            }
+            return new DenseMatrix(cols, data);
+        }
+
+        if (mapped) {
+            // Срезы секции без копирования: rowPtr, colIdx и значения после выравнивания
+            int colIdxStart = section.position() + 4 * (rows + 1);
+            int valuesStart = (colIdxStart + 4 * nnz + 7) & ~7;
+            int valueBytes = kind == SPARSE32 ? 4 : 8;
+            return new MappedSparseMatrix(cols,
+                    section.slice(section.position(), 4 * (rows + 1)).order(ByteOrder.LITTLE_ENDIAN).asIntBuffer(),
+                    section.slice(colIdxStart, 4 * nnz).order(ByteOrder.LITTLE_ENDIAN).asIntBuffer(),
+                    section.slice(valuesStart, valueBytes * nnz).order(ByteOrder.LITTLE_ENDIAN),
+                    kind == SPARSE32);
+        }
+
+        int[] rowPtr = new int[rows + 1];
+        int[] colIdx = new int[nnz];
+        section.asIntBuffer().get(rowPtr);
+        section.position(section.position() + 4 * rowPtr.length);
+        section.asIntBuffer().get(colIdx);
+        section.position((section.position() + 4 * nnz + 7) & ~7);
+
+        if (kind == SPARSE32) {
+            float[] values = new float[nnz];
+            section.asFloatBuffer().get(values);
+            return new FloatSparseMatrix(cols, rowPtr, colIdx, values);
+        }
+        double[] values = new double[nnz];
+        section.asDoubleBuffer().get(values);
+        return new SparseMatrix(cols, rowPtr, colIdx, values);
+    }
+
+    /**
+     * Буфер секции с автоматическим расширением; длина итоговой секции выравнивается на 8 байт
+     */
+    private static class SectionBuffer {
+
+        private ByteBuffer buffer;
+
+        SectionBuffer(long capacity) {
+            if (capacity > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("Секция снимка слишком велика: " + capacity + " байт");
+            }
+            buffer = ByteBuffer.allocate((int) Math.max(capacity, 8)).order(ByteOrder.LITTLE_ENDIAN);
+        }
+
+        SectionBuffer putInt(int value) {
+            ensure(4).putInt(value);
+            return this;
+        }
+
+        SectionBuffer putLong(long value) {
+            ensure(8).putLong(value);
+            return this;
+        }
+
+        SectionBuffer putFloat(float value) {
+            ensure(4).putFloat(value);
+            return this;
+        }
+
+        SectionBuffer putDouble(double value) {
+            ensure(8).putDouble(value);
+            return this;
+        }
+
+        SectionBuffer putInts(int[] values) {
+            ensure(4 * values.length).asIntBuffer().put(values);
+            buffer.position(buffer.position() + 4 * values.length);
+            return this;
+        }
+
+        SectionBuffer putInts(IntBuffer values) {
+            int count = values.remaining();
+            ensure(4 * count).asIntBuffer().put(values.duplicate());
+            buffer.position(buffer.position() + 4 * count);
+            return this;
+        }
+
+        SectionBuffer putDoubles(DoubleBuffer values) {
+            int count = values.remaining();
+            ensure(8 * count).asDoubleBuffer().put(values.duplicate());
+            buffer.position(buffer.position() + 8 * count);
+            return this;
+        }
+
+        SectionBuffer putDoubles(double[] values) {
+            ensure(8 * values.length).asDoubleBuffer().put(values);
+            buffer.position(buffer.position() + 8 * values.length);
+            return this;
+        }
+
+        SectionBuffer putBytes(byte[] values) {
+            ensure(values.length).put(values);
+            return this;
+        }
+
+        SectionBuffer putBytes(ByteBuffer values) {
+            ensure(values.remaining()).put(values.duplicate());
+            return this;
+        }
+
+        int position() {
+            return buffer.position();
+        }
+
+        SectionBuffer putString(String value) {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            return putInt(bytes.length).putBytes(bytes);
+        }
+
+        SectionBuffer putStrings(List<String> values) {
+            putInt(values.size());
+            for (String value : values) {
+                putString(value);
+            }
+            return this;
+        }
+
+        SectionBuffer align() {
+            int padding = -buffer.position() & 7;
+            ensure(padding).position(buffer.position() + padding);
+            return this;
+        }
+
+        ByteBuffer finish() {
+            return align().buffer.flip();
+        }
+
+        private ByteBuffer ensure(int bytes) {
+            if (buffer.remaining() < bytes) {
+                long capacity = Math.max(2L * buffer.capacity(), (long) buffer.position() + bytes);
+                if (capacity > Integer.MAX_VALUE) {
+                    throw new IllegalArgumentException("Секция снимка слишком велика: " + capacity + " байт");
+                }
+                ByteBuffer grown = ByteBuffer.allocate((int) capacity).order(ByteOrder.LITTLE_ENDIAN);
+                grown.put(buffer.flip());
+                buffer = grown;
+            }
+            return buffer;
+        }
+    }
 }
@@ -0,0 +1,100 @@
+package ru.itmo.alfa.comand4.core.util.serial;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.List;
+
+/**
+ * Каталог снимков моделей, адресуемых отпечатком обучающих данных и настроек.
+ * <p>
+ * Имя снимка - SHA-256 от содержимого CSV, строки настроек обучения и версии формата снимка:
+ * изменение любого из них даёт новое имя, поэтому устаревший снимок никогда не загружается.
+ * Каталог могут делить реплики и профили с разными настройками, поэтому снимки вытесняются по давности
+ * использования (LRU по времени изменения файла, которое обновляется при каждой загрузке), а не по отпечатку.
+ */
+public class SnapshotCache {
+
+    private static final String PREFIX = "model-";
+    private static final String SUFFIX = ".snap";
+
+    /**
+     * Путь снимка для данного набора данных и настроек (файла может ещё не быть)
+     */
+    public static Path resolve(Path directory, Path dataset, String settings) throws IOException {
+        return directory.resolve(PREFIX + fingerprint(dataset, settings) + SUFFIX);
+    }
+
+    /**
+     * Отметка использования снимка: время изменения файла - ключ вытеснения
+     */
+    public static void touch(Path snapshot) {
+        try {
+            Files.setLastModifiedTime(snapshot, FileTime.fromMillis(System.currentTimeMillis()));
+        } catch (IOException e) {
+            System.err.println("Ошибка отметки снимка модели: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Удаление давно не использованных снимков сверх keep самых свежих (любых отпечатков).
+     * Снимок, уже отображённый другим процессом, остаётся доступен ему до закрытия
+     */
+    public static void evict(Path directory, int keep) {
+        List<Path> snapshots = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, PREFIX + "*" + SUFFIX)) {
+            stream.forEach(snapshots::add);
+        } catch (IOException e) {
+            System.err.println("Ошибка очистки кэша моделей: " + e.getMessage());
+            return;
+        }
+        if (snapshots.size() <= keep) {
+            return;
+        }
+
+        snapshots.sort(Comparator.comparing(SnapshotCache::lastUsed).reversed());
+        for (Path snapshot : snapshots.subList(Math.max(keep, 1), snapshots.size())) {
+            try {
+                Files.deleteIfExists(snapshot);
+                System.out.println("Удалён давно не использованный снимок модели: " + snapshot);
+            } catch (IOException e) {
+                System.err.println("Ошибка удаления снимка модели: " + e.getMessage());
+            }
+        }
+    }
+
+    private static FileTime lastUsed(Path snapshot) {
+        try {
+            return Files.getLastModifiedTime(snapshot);
+        } catch (IOException e) {
+            return FileTime.fromMillis(0);
+        }
+    }
+
+    static String fingerprint(Path dataset, String settings) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+
+        try (InputStream in = new DigestInputStream(Files.newInputStream(dataset), digest)) {
+            in.transferTo(OutputStream.nullOutputStream());
+        }
+        digest.update(settings.getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) ModelSerializer.FORMAT_VERSION);
+        return HexFormat.of().formatHex(digest.digest());
+    }
+}
@@ -8,13 +8,14 @@ import lombok.AllArgsConstructor;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
-import ru.itmo.alfa.comand4.core.service.ModelDataService;
+import ru.itmo.alfa.comand4.core.service.ModelRegistry;
 import ru.itmo.alfa.comand4.domain.clusterinfo.model.ClusterDetails;
 import ru.itmo.alfa.comand4.domain.clusterinfo.model.ClusterInfoResponse;
 import ru.itmo.alfa.comand4.domain.clusterinfo.model.ClusterQuality;
+import ru.itmo.alfa.comand4.domain.clusterinfo.model.PrecisionDrift;
 import ru.itmo.alfa.comand4.domain.clusterinfo.model.VocabularyInfo;
 import ru.itmo.alfa.comand4.core.model.ClusterProfile;
-import ru.itmo.alfa.comand4.core.util.clustering.ClusterProfiler;
+import ru.itmo.alfa.comand4.core.model.ClusterProfiles;
 import ru.itmo.alfa.comand4.domain.clusterinfo.service.ClusterQualityService;
 import smile.clustering.KMeans;
 
@@ -30,7 +31,7 @@ import java.util.stream.Collectors;
 @Tag(name = "Cluster Analysis", description = "API для анализа результатов кластеризации обращений техподдержки")
 public class ClusterInfoController {
 
-    private final ModelDataService modelDataService;
+    private final ModelRegistry modelRegistry;
     private final ClusterQualityService qualityService;
 
     @Operation(
@@ -43,11 +44,11 @@ public class ClusterInfoController {
     })
     @GetMapping("/info")
     public ResponseEntity<ClusterInfoResponse> getClusterInfo() {
+        var modelData = modelRegistry.require();
         try {
-            var modelData = modelDataService.getModelData();
 
             KMeans kmeans = modelData.getModel();
-            ClusterProfiler profiler = modelData.getClusterProfiler();
+            ClusterProfiles profiler = modelData.getClusterProfiles();
 
             // Подсчитываем распределение по кластерам
             Map<Integer, Integer> clusterSizes = calculateClusterSizes(kmeans);
@@ -90,9 +91,9 @@ public class ClusterInfoController {
             response.getStatistics().put("avgClusterSize",
                     Math.round((double) totalTickets / kmeans.k * 100.0) / 100.0);
             response.getStatistics().put("vocabularySize",
-                    modelData.getVocabulary().size());
+                    modelData.getVocabulary().terms().size());
             response.getStatistics().put("featuresDimension",
-                    modelData.getFeatures()[0].length);
+                    modelData.getFeatures().cols());
 
             return ResponseEntity.ok(response);
 
@@ -112,14 +113,14 @@ public class ClusterInfoController {
     })
     @GetMapping("/{clusterId}")
     public ResponseEntity<ClusterDetails> getClusterDetails(@PathVariable int clusterId) {
-        var modelData = modelDataService.getModelData();
+        var modelData = modelRegistry.require();
         try {
             KMeans kmeans = modelData.getModel();
             if (clusterId < 0 || clusterId >= kmeans.k) {
                 return ResponseEntity.status(HttpStatus.BAD_REQUEST).build();
             }
 
-            ClusterProfiler profiler = modelData.getClusterProfiler();
+            ClusterProfiles profiler = modelData.getClusterProfiles();
             ClusterProfile profile = profiler.getProfile(clusterId);
 
             Map<Integer, Integer> clusterSizes = calculateClusterSizes(kmeans);
@@ -155,10 +156,10 @@ public class ClusterInfoController {
     @ApiResponse(responseCode = "200", description = "Успешный запрос")
     @GetMapping("/vocabulary")
     public ResponseEntity<VocabularyInfo> getVocabularyInfo() {
-        var modelData = modelDataService.getModelData();
+        var modelData = modelRegistry.require();
 
         try {
-            List<String> vocabulary = modelData.getVocabulary();
+            List<String> vocabulary = modelData.getVocabulary().terms();
             VocabularyInfo info = new VocabularyInfo();
             info.setVocabularySize(vocabulary.size());
 
@@ -187,8 +188,8 @@ public class ClusterInfoController {
                     """)
     @GetMapping("/quality")
     public ResponseEntity<ClusterQuality> getQualityMetrics() {
+        var modelData = modelRegistry.require();
         try {
-            var modelData = modelDataService.getModelData();
             ClusterQuality metrics = qualityService.evaluateQuality(modelData);
             return ResponseEntity.ok(metrics);
         } catch (Exception e) {
@@ -196,6 +197,27 @@ public class ClusterInfoController {
         }
     }
 
+    @Operation(summary = "Расхождение float64 и float32",
+            description = """
+                    Сравнивает назначения кластеров и Silhouette Score при хранении признаков в double и во float,
+                    а также объём памяти матрицы признаков в обоих режимах
+                    """)
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Сравнение выполнено"),
+            @ApiResponse(responseCode = "409", description = "Снимок модели загружен без матрицы признаков")
+    })
+    @GetMapping("/quality/precision")
+    public ResponseEntity<?> getPrecisionDrift() {
+        var modelData = modelRegistry.require();
+        try {
+            return ResponseEntity.ok(qualityService.comparePrecision(modelData));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(Map.of("error", e.getMessage()));
+        } catch (Exception e) {
+            return ResponseEntity.internalServerError().build();
+        }
+    }
+
     /**
      * Вспомогательный метод для подсчета размеров кластеров
      */
@@ -10,7 +10,7 @@ import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
-import ru.itmo.alfa.comand4.core.service.ModelDataService;
+import ru.itmo.alfa.comand4.core.service.ModelRegistry;
 import ru.itmo.alfa.comand4.domain.clusterinfo.model.SimilarityMatrix;
 import ru.itmo.alfa.comand4.domain.clusterinfo.model.VizualizationMethod;
 import ru.itmo.alfa.comand4.domain.clusterinfo.service.ClusterSimilarityService;
@@ -25,7 +25,7 @@ import java.io.IOException;
 @Tag(name = "Cluster Visualization", description = "API для визуализации кластеров")
 public class VisualizationController {
 
-    private final ModelDataService modelDataService;
+    private final ModelRegistry modelRegistry;
 
     private final VisualizationGenerator visualizer;
     private final HeatmapGenerator heatmapGenerator;
@@ -36,8 +36,9 @@ public class VisualizationController {
     public ResponseEntity<byte[]> getClusterPlot(
             @RequestParam(defaultValue = "UMAP") VizualizationMethod vizualizationMethod
     ) {
+        var modelData = modelRegistry.require();
         try {
-            byte[] imageBytes = visualizer.generateClusterPlot(modelDataService.getModelData(), vizualizationMethod);
+            byte[] imageBytes = visualizer.generateClusterPlot(modelData, vizualizationMethod);
             return ResponseEntity.ok()
                     .contentType(MediaType.IMAGE_PNG)
                     .header("Content-Disposition", "inline; filename=\"clusters.png\"")
@@ -53,8 +54,8 @@ public class VisualizationController {
             description = "Возвращает PNG изображение тепловой карты схожести между кластерами")
     @GetMapping(value = "/quality", produces = MediaType.IMAGE_PNG_VALUE)
     public ResponseEntity<byte[]> getSimilarityHeatmap() {
+        var modelData = modelRegistry.require();
         try {
-            var modelData = modelDataService.getModelData();
             SimilarityMatrix matrix = similarityService.calculateClusterSimilarity(modelData);
 
             byte[] imageBytes = heatmapGenerator.generateSimilarityHeatmap(matrix);
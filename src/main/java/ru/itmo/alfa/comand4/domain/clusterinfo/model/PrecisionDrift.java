@@ -0,0 +1,35 @@
+package ru.itmo.alfa.comand4.domain.clusterinfo.model;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+@Getter
+@AllArgsConstructor
+@Schema(description = "Расхождение результатов кластеризации между float64 и float32")
+public class PrecisionDrift {
+
+    @Schema(description = "Текущий режим точности модели")
+    private final String precision;
+
+    @Schema(description = "Доля документов, назначенных в один и тот же кластер в обоих режимах [0, 1]")
+    private final double assignmentAgreement;
+
+    @Schema(description = "Количество документов, сменивших кластер")
+    private final int changedAssignments;
+
+    @Schema(description = "Silhouette Score при значениях double")
+    private final double silhouette64;
+
+    @Schema(description = "Silhouette Score при значениях float")
+    private final double silhouette32;
+
+    @Schema(description = "Максимальная абсолютная ошибка округления координат центроидов")
+    private final double maxCentroidError;
+
+    @Schema(description = "Объём матрицы признаков в double, байт")
+    private final long featuresBytes64;
+
+    @Schema(description = "Объём матрицы признаков во float, байт")
+    private final long featuresBytes32;
+}
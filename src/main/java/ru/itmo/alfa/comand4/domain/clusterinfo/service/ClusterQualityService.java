@@ -2,9 +2,16 @@ package ru.itmo.alfa.comand4.domain.clusterinfo.service;
 
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
+import ru.itmo.alfa.comand4.core.model.DenseMatrix;
+import ru.itmo.alfa.comand4.core.model.FeatureMatrix;
+import ru.itmo.alfa.comand4.core.model.FloatSparseMatrix;
+import ru.itmo.alfa.comand4.core.model.MappedSparseMatrix;
 import ru.itmo.alfa.comand4.core.model.ModelData;
+import ru.itmo.alfa.comand4.core.model.SparseMatrix;
 import ru.itmo.alfa.comand4.core.util.clustering.ClusterDistance;
+import ru.itmo.alfa.comand4.core.util.clustering.VectorKernels;
 import ru.itmo.alfa.comand4.domain.clusterinfo.model.ClusterQuality;
+import ru.itmo.alfa.comand4.domain.clusterinfo.model.PrecisionDrift;
 import smile.clustering.KMeans;
 
 import java.util.Arrays;
@@ -21,7 +28,7 @@ public class ClusterQualityService {
         }
 
         KMeans kmeans = modelData.getModel();
-        double[][] features = modelData.getFeatures();
+        FeatureMatrix features = modelData.getFeatures();
         int[] labels = kmeans.y;
 
         // Рассчитываем все метрики
@@ -40,7 +47,7 @@ public class ClusterQualityService {
                 bcss,
 
                 kmeans.k,
-                features.length,
+                features.rows(),
 
                 balanceIndex,
                 giniCoefficient,
@@ -48,12 +55,126 @@ public class ClusterQualityService {
         );
     }
 
+    /**
+     * Сравнение кластеризации в float64 и float32 на одних и тех же центроидах:
+     * каждый документ заново назначается ближайшему центроиду в обоих режимах.
+     * Плотная матрица (после понижения размерности) сравнивается со своей копией, округлённой до float
+     *
+     * @throws IllegalStateException снимок модели сохранён без матрицы признаков
+     */
+    public PrecisionDrift comparePrecision(ModelData modelData) {
+        if (modelData == null || modelData.getModel() == null) {
+            throw new IllegalArgumentException("ModelData не может быть null");
+        }
+        if (modelData.getFeatures() == null) {
+            throw new IllegalStateException("Матрица признаков не загружена: снимок модели сохранён без неё");
+        }
+
+        FeatureMatrix features = modelData.getFeatures();
+        if (features instanceof MappedSparseMatrix mapped) {
+            features = mapped.toHeap();
+        }
+
+        FeatureMatrix features64;
+        FeatureMatrix features32;
+        long bytes32;
+        if (features instanceof FloatSparseMatrix matrix) {
+            features32 = matrix;
+            features64 = matrix.toDouble();
+            bytes32 = features32.sizeInBytes();
+        } else if (features instanceof SparseMatrix matrix) {
+            features64 = matrix;
+            features32 = matrix.toFloat();
+            bytes32 = features32.sizeInBytes();
+        } else if (features instanceof DenseMatrix matrix) {
+            // Копия хранит округлённые значения в double, поэтому объём во float считается по размерам матрицы
+            features64 = matrix;
+            features32 = roundToFloat(matrix);
+            bytes32 = 4L * matrix.rows() * matrix.cols();
+        } else {
+            throw new IllegalStateException("Сравнение точности не поддерживает матрицу признаков "
+                    + features.getClass().getSimpleName());
+        }
+
+        // Центроиды float32, расширенные обратно до double для разреженных ядер
+        double[][] centroids64 = modelData.getModel().centroids;
+        double[][] centroids32 = new double[centroids64.length][];
+        double maxCentroidError = 0.0;
+        for (int c = 0; c < centroids64.length; c++) {
+            float[] rounded = VectorKernels.toFloat(centroids64[c]);
+            centroids32[c] = new double[rounded.length];
+            for (int j = 0; j < rounded.length; j++) {
+                centroids32[c][j] = rounded[j];
+                maxCentroidError = Math.max(maxCentroidError, Math.abs(centroids64[c][j] - rounded[j]));
+            }
+        }
+
+        int[] labels64 = assign(features64, centroids64);
+        int[] labels32 = assign(features32, centroids32);
+
+        int changed = 0;
+        for (int i = 0; i < labels64.length; i++) {
+            if (labels64[i] != labels32[i]) {
+                changed++;
+            }
+        }
+        double agreement = labels64.length > 0 ? 1.0 - (double) changed / labels64.length : 1.0;
+
+        return new PrecisionDrift(
+                modelData.getCentroids32() != null ? "FLOAT32" : "FLOAT64",
+                agreement,
+                changed,
+                calculateSilhouetteScore(features64, labels64),
+                calculateSilhouetteScore(features32, labels32),
+                maxCentroidError,
+                features64.sizeInBytes(),
+                bytes32
+        );
+    }
+
+    /**
+     * Плотная матрица со значениями, округлёнными до float
+     */
+    private static DenseMatrix roundToFloat(DenseMatrix matrix) {
+        double[][] data = new double[matrix.rows()][];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = matrix.toDense(i);
+            for (int j = 0; j < data[i].length; j++) {
+                data[i][j] = (float) data[i][j];
+            }
+        }
+        return new DenseMatrix(matrix.cols(), data);
+    }
+
+    /**
+     * Назначение документов ближайшему центроиду
+     */
+    private int[] assign(FeatureMatrix features, double[][] centroids) {
+        double[] squaredNorms = new double[centroids.length];
+        for (int c = 0; c < centroids.length; c++) {
+            squaredNorms[c] = VectorKernels.squaredNorm(centroids[c]);
+        }
+
+        int[] labels = new int[features.rows()];
+        for (int i = 0; i < labels.length; i++) {
+            double nearest = Double.MAX_VALUE;
+            for (int c = 0; c < centroids.length; c++) {
+                double distance = features.squaredDistance(i, centroids[c], squaredNorms[c]);
+                if (distance < nearest) {
+                    nearest = distance;
+                    labels[i] = c;
+                }
+            }
+        }
+        return labels;
+    }
+
     /**
      * Silhouette Score - основная метрика качества кластеризации
      * Диапазон: [-1, 1] (чем ближе к 1, тем лучше)
      */
-    private double calculateSilhouetteScore(double[][] features, int[] labels) {
-        int n = features.length;
+    private double calculateSilhouetteScore(FeatureMatrix features, int[] labels) {
+        int n = features.rows();
         if (n <= 1) return 0.0;
 
         double totalSilhouette = 0.0;
@@ -77,7 +198,7 @@ public class ClusterQualityService {
     /**
      * Between-Cluster Sum of Squares
      */
-    private double calculateBCSS(double[][] features, int[] labels, double[][] centroids) {
+    private double calculateBCSS(FeatureMatrix features, int[] labels, double[][] centroids) {
         double[] globalCentroid = calculateGlobalCentroid(features);
         double bcss = 0.0;
 
@@ -96,18 +217,16 @@ public class ClusterQualityService {
         return bcss;
     }
 
-    private double[] calculateGlobalCentroid(double[][] features) {
-        int d = features[0].length;
+    private double[] calculateGlobalCentroid(FeatureMatrix features) {
+        int d = features.cols();
         double[] centroid = new double[d];
 
-        for (double[] feature : features) {
-            for (int j = 0; j < d; j++) {
-                centroid[j] += feature[j];
-            }
+        for (int i = 0; i < features.rows(); i++) {
+            features.addTo(i, centroid, 1.0);
         }
 
         for (int j = 0; j < d; j++) {
-            centroid[j] /= features.length;
+            centroid[j] /= features.rows();
         }
 
         return centroid;
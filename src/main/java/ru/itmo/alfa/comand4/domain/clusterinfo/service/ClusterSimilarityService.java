@@ -2,6 +2,7 @@ package ru.itmo.alfa.comand4.domain.clusterinfo.service;
 
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
+import ru.itmo.alfa.comand4.core.model.FeatureMatrix;
 import ru.itmo.alfa.comand4.core.model.ModelData;
 import ru.itmo.alfa.comand4.core.util.clustering.ClusterDistance;
 import ru.itmo.alfa.comand4.domain.clusterinfo.model.SimilarityMatrix;
@@ -13,7 +14,7 @@ public class ClusterSimilarityService {
 
     public SimilarityMatrix calculateClusterSimilarity(ModelData modelData) {
         KMeans kmeans = modelData.getModel();
-        double[][] features = modelData.getFeatures();
+        FeatureMatrix features = modelData.getFeatures();
         int[] labels = kmeans.y;
 
         int k = kmeans.k;
@@ -35,12 +36,12 @@ public class ClusterSimilarityService {
         return new SimilarityMatrix(similarityMatrix, clusterLabels);
     }
 
-    private double calculateSilhouetteBasedSimilarity(double[][] features, int[] labels, int clusterA, int clusterB) {
+    private double calculateSilhouetteBasedSimilarity(FeatureMatrix features, int[] labels, int clusterA, int clusterB) {
         double totalSimilarity = 0.0;
         int count = 0;
 
         // Для каждой точки в кластере A
-        for (int i = 0; i < features.length; i++) {
+        for (int i = 0; i < features.rows(); i++) {
             if (labels[i] == clusterA) {
                 double a = ClusterDistance.calculateAverageDistanceToOwnCluster(features, labels, i);
                 double b = ClusterDistance.calculateAverageDistanceToSpecificCluster(features, labels, i, clusterB);
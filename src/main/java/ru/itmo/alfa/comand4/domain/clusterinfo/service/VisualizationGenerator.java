@@ -25,7 +25,8 @@ public class VisualizationGenerator {
         }
 
         KMeans kmeans = modelData.getModel();
-        double[][] features = modelData.getFeatures();
+        // Проекции Smile принимают только плотную матрицу
+        double[][] features = modelData.getFeatures().toDense();
 
         double[][] features2D;
         if (vizualizationMethod == VizualizationMethod.TSNE) {
@@ -7,7 +7,7 @@ import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
-import ru.itmo.alfa.comand4.core.service.ModelDataService;
+import ru.itmo.alfa.comand4.core.service.ModelRegistry;
 import ru.itmo.alfa.comand4.domain.stability.model.StabilityResult;
 import ru.itmo.alfa.comand4.core.dto.SupportTicket;
 import ru.itmo.alfa.comand4.core.util.source.CsvReader;
@@ -27,7 +27,7 @@ import java.util.Map;
 @Tag(name = "Model Stability", description = "API для оценки устойчивости модели кластеризации")
 public class StabilityController {
 
-    private final ModelDataService modelDataService;
+    private final ModelRegistry modelRegistry;
     private final ClusterStabilityService stabilityService;
 
     @Operation(summary = "Оценка устойчивости модели",
@@ -36,7 +36,7 @@ public class StabilityController {
     public ResponseEntity<Map<String, Object>> evaluateStability(
             @RequestParam("file") MultipartFile file
     ) {
-        var modelData = modelDataService.getModelData();
+        var modelData = modelRegistry.require();
         try {
             // Получаем исходные данные
             List<SupportTicket> originalTickets  = new CsvReader().getAllTicket(new InputStreamReader(file.getInputStream()));
@@ -58,7 +58,8 @@ public class StabilityController {
                              originalTickets,
                              modelData.getVocabulary(),
                              modelData.getModel(),
-                             originalClusters);
+                             originalClusters,
+                             modelData.getProjection());
 
             return ResponseEntity.ok(result.toHistogramData());
         }
@@ -73,7 +74,7 @@ public class StabilityController {
     public ResponseEntity<byte[]> getStabilityHistogram(
             @RequestParam("file") MultipartFile file
     ) {
-        var modelData = modelDataService.getModelData();
+        var modelData = modelRegistry.require();
         try {
             //  Читаем оригинальные данные из CSV файла
             List<SupportTicket> originalTickets = CsvReader.getAllTicket(new InputStreamReader(file.getInputStream()));
@@ -96,7 +97,8 @@ public class StabilityController {
                             originalTickets,
                             modelData.getVocabulary(),
                             modelData.getModel(),
-                            originalClusters
+                            originalClusters,
+                            modelData.getProjection()
                     );
 
             // Генерируем PNG гистограмму
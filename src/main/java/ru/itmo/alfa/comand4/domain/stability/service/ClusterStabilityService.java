@@ -7,6 +7,13 @@ import ru.itmo.alfa.comand4.domain.stability.model.ClusterStats;
 import ru.itmo.alfa.comand4.domain.stability.model.DataSplit;
 import ru.itmo.alfa.comand4.domain.stability.model.StabilityResult;
 import ru.itmo.alfa.comand4.core.dto.SupportTicket;
+import ru.itmo.alfa.comand4.core.model.FeatureMatrix;
+import ru.itmo.alfa.comand4.core.model.Projection;
+import ru.itmo.alfa.comand4.core.model.SparseMatrix;
+import ru.itmo.alfa.comand4.core.util.clustering.CentroidScorer;
+import ru.itmo.alfa.comand4.core.util.clustering.HamerlyKMeans;
+import ru.itmo.alfa.comand4.core.util.clustering.VectorKernels;
+import ru.itmo.alfa.comand4.core.util.morfology.TermIndex;
 import ru.itmo.alfa.comand4.core.util.morfology.VectorizeText;
 import smile.clustering.KMeans;
 import java.awt.*;
@@ -24,9 +31,10 @@ public class ClusterStabilityService {
 
     public StabilityResult evaluateStability(
             List<SupportTicket> allTickets,
-            List<String> vocabulary,
+            TermIndex vocabulary,
             KMeans originalModel,
-            int[] originalClusters
+            int[] originalClusters,
+            Projection projection
     ) {
         System.out.println("=== ДИАГНОСТИКА УСТОЙЧИВОСТИ ===");
 
@@ -36,13 +44,15 @@ public class ClusterStabilityService {
         // Разделяем данные: 75% для обучения, 25% для теста (стратифицированно)
         DataSplit split = splitDataStratified(allTickets, originalClusters, 0.25);
 
-        // Обучаем новую модель на 75% данных
-        double[][] trainFeatures = vectorizer.vectorize(
+        // Обучаем новую модель на 75% данных (в пространстве центроидов модели: с её проекцией, если она есть)
+        SparseMatrix trainMatrix = vectorizer.vectorize(
                 split.getTrainTickets().stream()
                         .map(SupportTicket::getCustomerIssue)
                         .toList(),
                 vocabulary
         );
+        // Матрица не уплотняется: в режиме хэширования плотная строка заняла бы 2^hashbits элементов
+        FeatureMatrix trainFeatures = projection != null ? projection.apply(trainMatrix) : trainMatrix;
 
         //KMeans newModel = KMeans.fit(trainFeatures, originalModel.k);
 
@@ -64,23 +74,27 @@ public class ClusterStabilityService {
         analyzeClusterDistribution("НОВАЯ модель", newModel, trainFeatures);
 
         // Собираем предсказания для тестовых данных
+        // Тестовые заявки - TF строки одним разреженным блоком
+        SparseMatrix testMatrix = vectorizer.vectorizeCodes(
+                split.getTestTickets().stream()
+                        .map(ticket -> vectorizer.termCodes(ticket.getCustomerIssue(), vocabulary))
+                        .toList(),
+                vocabulary
+        );
+        FeatureMatrix testFeatures = projection != null ? projection.apply(testMatrix) : testMatrix;
+
+        CentroidScorer originalScorer = CentroidScorer.of(originalModel.centroids, null, false);
+        CentroidScorer newScorer = CentroidScorer.of(newModel.centroids, null, false);
         List<Integer> originalPredictions = new ArrayList<>();
         List<Integer> newPredictions = new ArrayList<>();
-        List<double[]> testFeaturesList = new ArrayList<>();
-
-        for (SupportTicket ticket : split.getTestTickets()) {
-            double[] features = vectorizer.vectorize(ticket.getCustomerIssue(), vocabulary);
-            testFeaturesList.add(features);
 
-            int originalClusterId = originalModel.predict(features);
-            int newClusterId = newModel.predict(features);
-
-            originalPredictions.add(originalClusterId);
-            newPredictions.add(newClusterId);
+        for (int i = 0; i < testFeatures.rows(); i++) {
+            originalPredictions.add(originalScorer.predict(testFeatures, i).getClusterId());
+            newPredictions.add(newScorer.predict(testFeatures, i).getClusterId());
         }
 
         // ДИАГНОСТИКА: Детальное сравнение предсказаний
-        detailedPredictionAnalysis(testFeaturesList, originalPredictions, newPredictions,
+        detailedPredictionAnalysis(testFeatures, originalPredictions, newPredictions,
                 originalModel, newModel);
 
         // Анализ совпадений
@@ -416,7 +430,7 @@ public class ClusterStabilityService {
         g.drawString(title, (width - titleWidth) / 2, 40);
     }
 
-    private void analyzeClusterDistribution(String modelName, KMeans model, double[][] features) {
+    private void analyzeClusterDistribution(String modelName, KMeans model, FeatureMatrix features) {
         Map<Integer, Integer> distribution = new HashMap<>();
         for (int clusterId : model.y) {
             distribution.put(clusterId, distribution.getOrDefault(clusterId, 0) + 1);
@@ -424,7 +438,7 @@ public class ClusterStabilityService {
         System.out.println(modelName + " распределение: " + distribution);
     }
 
-    private void detailedPredictionAnalysis(List<double[]> testFeatures,
+    private void detailedPredictionAnalysis(FeatureMatrix testFeatures,
                                             List<Integer> originalPredictions,
                                             List<Integer> newPredictions,
                                             KMeans originalModel, KMeans newModel) {
@@ -434,14 +448,13 @@ public class ClusterStabilityService {
         int samePredictions = 0;
         int differentPredictions = 0;
 
-        for (int i = 0; i < Math.min(5, testFeatures.size()); i++) {
-            double[] features = testFeatures.get(i);
+        for (int i = 0; i < Math.min(5, testFeatures.rows()); i++) {
             int origCluster = originalPredictions.get(i);
             int newCluster = newPredictions.get(i);
 
             // Вычисляем расстояния до центроидов
-            double[] origDistances = calculateDistancesToCentroids(features, originalModel.centroids);
-            double[] newDistances = calculateDistancesToCentroids(features, newModel.centroids);
+            double[] origDistances = calculateDistancesToCentroids(testFeatures, i, originalModel.centroids);
+            double[] newDistances = calculateDistancesToCentroids(testFeatures, i, newModel.centroids);
 
             System.out.printf("Пример %d:%n", i);
             System.out.printf("  Предсказания: оригинал=%d, новый=%d%n", origCluster, newCluster);
@@ -455,152 +468,69 @@ public class ClusterStabilityService {
             }
         }
 
-        System.out.printf("Совпадающих предсказаний: %d/%d%n", samePredictions, testFeatures.size());
+        System.out.printf("Совпадающих предсказаний: %d/%d%n", samePredictions, testFeatures.rows());
     }
 
-    private double[] calculateDistancesToCentroids(double[] features, double[][] centroids) {
+    private double[] calculateDistancesToCentroids(FeatureMatrix features, int row, double[][] centroids) {
         double[] distances = new double[centroids.length];
         for (int i = 0; i < centroids.length; i++) {
-            distances[i] = euclideanDistance(features, centroids[i]);
+            distances[i] = Math.sqrt(features.squaredDistance(row, centroids[i], VectorKernels.squaredNorm(centroids[i])));
         }
         return distances;
     }
 
     private double euclideanDistance(double[] a, double[] b) {
-        double sum = 0;
-        for (int i = 0; i < a.length; i++) {
-            sum += Math.pow(a[i] - b[i], 2);
-        }
-        return Math.sqrt(sum);
+        return VectorKernels.distance(a, b);
     }
 
-    private void analyzeVectorization(List<SupportTicket> tickets, List<String> vocabulary) {
-        double[][] features = vectorizer.vectorize(
+    private void analyzeVectorization(List<SupportTicket> tickets, TermIndex vocabulary) {
+        SparseMatrix features = vectorizer.vectorize(
                 tickets.stream().map(SupportTicket::getCustomerIssue).toList(),
                 vocabulary
         );
 
         System.out.println("=== АНАЛИЗ ВЕКТОРИЗАЦИИ ===");
-        System.out.println("Размер vocabulary: " + vocabulary.size());
-        System.out.println("Количество векторов: " + features.length);
-        System.out.println("Размерность векторов: " + features[0].length);
+        System.out.println("Размер vocabulary: " + vocabulary.dimension());
+        System.out.println("Количество векторов: " + features.rows());
+        System.out.println("Размерность векторов: " + features.cols());
 
-        // Анализ первых нескольких векторов
-        for (int i = 0; i < Math.min(3, features.length); i++) {
-            System.out.printf("Вектор %d: %s%n", i, Arrays.toString(features[i]));
+        // Анализ первых нескольких векторов (ненулевые элементы в виде столбец=значение)
+        for (int i = 0; i < Math.min(3, features.rows()); i++) {
+            System.out.printf("Вектор %d: %s%n", i, rowToString(features, i));
 
             // Статистика по вектору
-            double sum = Arrays.stream(features[i]).sum();
-            int nonZero = (int) Arrays.stream(features[i]).filter(v -> v > 0).count();
+            double sum = 0.0;
+            int nonZero = 0;
+            for (int p = features.rowStart(i); p < features.rowEnd(i); p++) {
+                sum += features.value(p);
+                if (features.value(p) > 0) {
+                    nonZero++;
+                }
+            }
             System.out.printf("  Сумма: %.3f, Ненулевых: %d/%d%n",
-                    sum, nonZero, features[i].length);
+                    sum, nonZero, features.cols());
         }
 
         // Проверка на уникальность векторов
         Set<String> uniqueVectors = new HashSet<>();
-        for (double[] vector : features) {
-            uniqueVectors.add(Arrays.toString(vector));
+        for (int i = 0; i < features.rows(); i++) {
+            uniqueVectors.add(rowToString(features, i));
         }
-        System.out.println("Уникальных векторов: " + uniqueVectors.size() + "/" + features.length);
+        System.out.println("Уникальных векторов: " + uniqueVectors.size() + "/" + features.rows());
     }
 
-
-    private KMeans fitWithDeterministicInitialization(double[][] data, KMeans originalModel) {
-        int k = originalModel.k;
-        int maxIter = 100;
-        double tol = 1e-4;
-
-        int n = data.length;
-        int d = data[0].length;
-        int[] y = new int[n];
-
-        // ИСПОЛЬЗУЕМ ЦЕНТРОИДЫ ОРИГИНАЛЬНОЙ МОДЕЛИ КАК НАЧАЛЬНОЕ ПРИБЛИЖЕНИЕ
-        double[][] centroids = new double[k][d];
-        for (int i = 0; i < k; i++) {
-            centroids[i] = originalModel.centroids[i].clone();
+    private String rowToString(SparseMatrix features, int row) {
+        StringJoiner joiner = new StringJoiner(", ", "{", "}");
+        for (int p = features.rowStart(row); p < features.rowEnd(row); p++) {
+            joiner.add(features.column(p) + "=" + features.value(p));
         }
-
-        // K-means алгоритм
-        double distortion = assignClusters(data, centroids, y);
-        System.out.printf("Distortion after initialization: %.4f%n", distortion);
-
-        int[] size = new int[k];
-        double[][] sum = new double[k][d];
-
-        double diff = Double.MAX_VALUE;
-
-        for (int iter = 1; iter <= maxIter && diff > tol; iter++) {
-            // Обновляем центроиды
-            updateCentroids(centroids, data, y, size, sum);
-
-            // Пересчитываем кластеры
-            double newDistortion = assignClusters(data, centroids, y);
-
-            System.out.printf("Iteration %d: distortion = %.4f, improvement = %.4f%n",
-                    iter, newDistortion, diff);
-
-            diff = distortion - newDistortion;
-            distortion = newDistortion;
-
-            if (diff <= tol) {
-                break;
-            }
-        }
-
-        return new KMeans(distortion, centroids, y);
+        return joiner.toString();
     }
 
-    private double assignClusters(double[][] data, double[][] centroids, int[] y) {
-        double distortion = 0.0;
-        int k = centroids.length;
-
-        for (int i = 0; i < data.length; i++) {
-            double minDistance = Double.MAX_VALUE;
-            int bestCluster = 0;
-
-            for (int j = 0; j < k; j++) {
-                double distance = euclideanDistance(data[i], centroids[j]);
-                if (distance < minDistance) {
-                    minDistance = distance;
-                    bestCluster = j;
-                }
-            }
-
-            y[i] = bestCluster;
-            distortion += minDistance;
-        }
-
-        return distortion;
-    }
 
-    private void updateCentroids(double[][] centroids, double[][] data, int[] y, int[] size, double[][] sum) {
-        int k = centroids.length;
-        int d = centroids[0].length;
-
-        // Обнуляем суммы и счетчики
-        for (int i = 0; i < k; i++) {
-            size[i] = 0;
-            Arrays.fill(sum[i], 0.0);
-        }
-
-        // Суммируем векторы по кластерам
-        for (int i = 0; i < data.length; i++) {
-            int cluster = y[i];
-            size[cluster]++;
-            for (int j = 0; j < d; j++) {
-                sum[cluster][j] += data[i][j];
-            }
-        }
-
-        // Вычисляем новые центроиды
-        for (int i = 0; i < k; i++) {
-            if (size[i] > 0) {
-                for (int j = 0; j < d; j++) {
-                    centroids[i][j] = sum[i][j] / size[i];
-                }
-            }
-            // Если кластер пустой, оставляем старый центроид
-        }
+    private KMeans fitWithDeterministicInitialization(FeatureMatrix data, KMeans originalModel) {
+        // ИСПОЛЬЗУЕМ ЦЕНТРОИДЫ ОРИГИНАЛЬНОЙ МОДЕЛИ КАК НАЧАЛЬНОЕ ПРИБЛИЖЕНИЕ
+        return HamerlyKMeans.fit(data, originalModel.centroids, 100, 1e-4);
     }
 
     private void analyzePredictions(List<Integer> original, List<Integer> newPredictions) {
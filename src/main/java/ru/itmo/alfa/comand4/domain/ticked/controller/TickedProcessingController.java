@@ -1,15 +1,33 @@
 package ru.itmo.alfa.comand4.domain.ticked.controller;
 
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import lombok.AllArgsConstructor;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
+import ru.itmo.alfa.comand4.domain.ticked.model.SimilarTicketsResponse;
 import ru.itmo.alfa.comand4.domain.ticked.model.TicketRequest;
 import ru.itmo.alfa.comand4.domain.ticked.model.TicketResponse;
 import ru.itmo.alfa.comand4.domain.ticked.service.TicketProcessor;
+import ru.itmo.alfa.comand4.domain.ticked.service.TicketStreamProcessor;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/api/processing")
@@ -17,7 +35,10 @@ import ru.itmo.alfa.comand4.domain.ticked.service.TicketProcessor;
 @Tag(name = "Ticked Processing", description = "API для обработки запросов")
 public class TickedProcessingController {
 
+    private static final String NDJSON = "application/x-ndjson";
+
     private final TicketProcessor ticketProcessor;
+    private final TicketStreamProcessor ticketStreamProcessor;
 
     @PostMapping("/analyze")
     public ResponseEntity<TicketResponse> analyzeTicket(
@@ -27,5 +48,50 @@ public class TickedProcessingController {
         TicketResponse ticketResponse = ticketProcessor.processNewTicket(ticketRequest);
         return ResponseEntity.ok(ticketResponse);
     }
-}
 
+    @Operation(
+            summary = "Похожие заявки",
+            description = "Возвращает кластер заявки и ближайшие к ней заявки из обучающего корпуса с ответами специалистов "
+                    + "(приближённый поиск по индексу HNSW над TF-IDF векторами)."
+    )
+    @PostMapping("/similar")
+    public ResponseEntity<SimilarTicketsResponse> findSimilar(
+            @RequestBody TicketRequest ticketRequest
+    ) {
+        return ResponseEntity.ok(ticketProcessor.findSimilar(ticketRequest));
+    }
+
+    @Operation(
+            summary = "Пакетная обработка заявок",
+            description = "Принимает массив заявок и возвращает ответы в том же порядке. Все заявки оцениваются на одном снимке модели."
+    )
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Заявки обработаны"),
+            @ApiResponse(responseCode = "400", description = "Пустой пакет, слишком много заявок или слишком длинное описание")
+    })
+    @PostMapping("/analyze/batch")
+    public ResponseEntity<?> analyzeBatch(
+            @RequestBody List<TicketRequest> ticketRequests
+    ) {
+        try {
+            return ResponseEntity.ok(ticketProcessor.processBatch(ticketRequests));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    @Operation(
+            summary = "Потоковая обработка заявок (NDJSON)",
+            description = "Тело запроса - заявки по одной JSON строке. Ответ - по одной JSON строке на каждую заявку в том же порядке, "
+                    + "строки отправляются по мере оценки. Ошибка в строке даёт строку {\"error\": ...}, поток продолжается."
+    )
+    @PostMapping(value = "/analyze/stream", consumes = {NDJSON, MediaType.APPLICATION_JSON_VALUE, MediaType.TEXT_PLAIN_VALUE})
+    public void analyzeStream(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        response.setContentType(NDJSON);
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+
+        BufferedReader in = new BufferedReader(new InputStreamReader(request.getInputStream(), StandardCharsets.UTF_8));
+        Writer out = new BufferedWriter(new OutputStreamWriter(response.getOutputStream(), StandardCharsets.UTF_8));
+        ticketStreamProcessor.process(in, out);
+    }
+}
@@ -0,0 +1,16 @@
+package ru.itmo.alfa.comand4.domain.ticked.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Кластер-кандидат для заявки: score - 1 - расстояние до центроида (косинусная близость
+ * для сферической модели), без обрезки нулём
+ */
+@Getter
+@AllArgsConstructor
+public class ClusterCandidate {
+    private int clusterId;
+    private String category;
+    private double score;
+}
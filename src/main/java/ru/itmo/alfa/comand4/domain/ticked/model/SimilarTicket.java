@@ -0,0 +1,19 @@
+package ru.itmo.alfa.comand4.domain.ticked.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Похожая заявка из корпуса: исходное обращение, ответ специалиста, кластер заявки
+ * и косинусная близость TF-IDF векторов
+ */
+@Getter
+@AllArgsConstructor
+public class SimilarTicket {
+    private String conversationId;
+    private String customerIssue;
+    private String techResponse;
+    private String issueCategory;
+    private int clusterId;
+    private double similarity;
+}
\ No newline at end of file
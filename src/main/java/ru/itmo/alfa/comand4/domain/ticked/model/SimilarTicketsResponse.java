@@ -0,0 +1,14 @@
+package ru.itmo.alfa.comand4.domain.ticked.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+
+@Getter
+@AllArgsConstructor
+public class SimilarTicketsResponse {
+    private int clusterId;
+    private String category;
+    private List<SimilarTicket> similarTickets;
+}
\ No newline at end of file
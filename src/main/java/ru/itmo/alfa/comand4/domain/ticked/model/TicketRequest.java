@@ -10,4 +10,6 @@ import lombok.Setter;
 @NoArgsConstructor
 public class TicketRequest {
     private String description;
+    // Число кластеров-кандидатов в ответе; не задано - ответ без кандидатов и отрыва
+    private Integer topN;
 }
\ No newline at end of file
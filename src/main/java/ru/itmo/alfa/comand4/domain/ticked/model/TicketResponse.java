@@ -1,5 +1,6 @@
 package ru.itmo.alfa.comand4.domain.ticked.model;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.AllArgsConstructor;
 import lombok.Getter;
 
@@ -13,4 +14,9 @@ public class TicketResponse {
     private List<String> recommendedSolutions;
     private int expectedResolutionTime;
     private double confidence;
-}
+    // Только при запрошенном topN: отрыв лучшего кластера от второго и кандидаты по убыванию score
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Double margin;
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private List<ClusterCandidate> candidates;
+}
\ No newline at end of file
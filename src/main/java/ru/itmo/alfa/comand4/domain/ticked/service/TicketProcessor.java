@@ -1,80 +1,226 @@
 package ru.itmo.alfa.comand4.domain.ticked.service;
 
-import jakarta.annotation.PostConstruct;
 import org.springframework.stereotype.Service;
-import ru.itmo.alfa.comand4.core.service.ModelDataService;
+import ru.itmo.alfa.comand4.configuration.FeatureToggle;
+import ru.itmo.alfa.comand4.core.service.ModelRegistry;
+import ru.itmo.alfa.comand4.domain.ticked.model.ClusterCandidate;
+import ru.itmo.alfa.comand4.domain.ticked.model.SimilarTicket;
+import ru.itmo.alfa.comand4.domain.ticked.model.SimilarTicketsResponse;
 import ru.itmo.alfa.comand4.domain.ticked.model.TicketRequest;
 import ru.itmo.alfa.comand4.domain.ticked.model.TicketResponse;
 
+import ru.itmo.alfa.comand4.core.dto.SupportTicket;
 import ru.itmo.alfa.comand4.core.model.ClusterProfile;
+import ru.itmo.alfa.comand4.core.model.DenseMatrix;
+import ru.itmo.alfa.comand4.core.model.FeatureMatrix;
 import ru.itmo.alfa.comand4.core.model.ModelData;
-import ru.itmo.alfa.comand4.core.util.clustering.ClusterProfiler;
+import ru.itmo.alfa.comand4.core.model.Projection;
+import ru.itmo.alfa.comand4.core.model.SparseMatrix;
+import ru.itmo.alfa.comand4.core.util.clustering.CentroidScorer;
 import ru.itmo.alfa.comand4.core.util.morfology.VectorizeText;
+import ru.itmo.alfa.comand4.core.util.search.HnswIndex;
 
-import smile.clustering.KMeans;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.stream.IntStream;
 
 /**
- * Класс для обработки новых заявок
+ * Класс для обработки новых заявок.
+ * Каждая заявка обрабатывается целиком на одном снимке модели, взятом из реестра в начале запроса
  */
 @Service
 public class TicketProcessor {
 
-    private List<String> vocabulary;
-    private KMeans model;
-    private ClusterProfiler clusterProfiler;
+    private final FeatureToggle feature;
 
     private final VectorizeText vectorizer;
 
-    private final ModelDataService modelDataService;
+    private final ModelRegistry modelRegistry;
 
-    public TicketProcessor(VectorizeText vectorizer, ModelDataService modelDataService) {
+    private final TicketResponseCache responseCache;
+
+    public TicketProcessor(FeatureToggle feature, VectorizeText vectorizer, ModelRegistry modelRegistry,
+                           TicketResponseCache responseCache) {
+        this.feature = feature;
         this.vectorizer = vectorizer;
-        this.modelDataService = modelDataService;
+        this.modelRegistry = modelRegistry;
+        this.responseCache = responseCache;
     }
 
-    @PostConstruct
-    protected void init() {
-        ModelData modelData = modelDataService.getModelData();
+    public TicketResponse processNewTicket(TicketRequest request) {
+        return processNewTicket(modelRegistry.require(), request);
+    }
 
-        vocabulary = modelData.getVocabulary();
-        model =  modelData.getModel();
-        clusterProfiler = modelData.getClusterProfiler();
+    /**
+     * Обработка заявки на заданном снимке модели - для потоковой обработки, где все строки
+     * оцениваются на одном снимке
+     */
+    public TicketResponse processNewTicket(ModelData modelData, TicketRequest request) {
+        return analyze(modelData, request.getDescription(), topN(modelData, request));
     }
 
-    public TicketResponse processNewTicket(TicketRequest request) {
-        // Векторизуем новую заявку
-        double[] features = vectorizer.vectorize(request.getDescription(), vocabulary);
+    /**
+     * Текущий снимок модели
+     *
+     * @throws ru.itmo.alfa.comand4.core.service.ModelNotReadyException модель ещё не обучена
+     */
+    public ModelData snapshot() {
+        return modelRegistry.require();
+    }
+
+    /**
+     * Кластер заявки и ближайшие к ней заявки корпуса с ответами специалистов (поиск по индексу HNSW).
+     * Заявка без известных модели терминов похожих не имеет
+     */
+    public SimilarTicketsResponse findSimilar(TicketRequest request) {
+        ModelData modelData = modelRegistry.require();
+        FeatureToggle.Index settings = feature.getIndex();
+
+        SparseMatrix tf = vectorizer.vectorizeRow(request.getDescription(), modelData.getVocabulary());
+        TicketResponse cluster = score(modelData, tf, 0, 0);
+
+        List<SimilarTicket> similar = new ArrayList<>(settings.getNeighbors());
+        // Запрос взвешивается частотами, с которыми построен индекс, а не обновлёнными частотами снимка
+        HnswIndex index = modelData.getTicketIndex();
+        SparseMatrix tfidf = index.frequencies().weight(tf, 0);
+        if (tfidf.nnz() > 0) {
+            for (HnswIndex.Neighbor neighbor : index.search(tfidf, 0,
+                    settings.getNeighbors(), settings.getEfsearch())) {
+                SupportTicket ticket = modelData.getTickets().get(neighbor.getRow());
+                similar.add(new SimilarTicket(
+                        ticket.getConversationId(),
+                        ticket.getCustomerIssue(),
+                        ticket.getTechResponse(),
+                        ticket.getIssueCategory(),
+                        modelData.getModel().y[neighbor.getRow()],
+                        neighbor.getSimilarity()
+                ));
+            }
+        }
+        return new SimilarTicketsResponse(cluster.getClusterId(), cluster.getCategory(), similar);
+    }
 
-        // Предсказываем кластер
-        int clusterId = model.predict(features);
+    /**
+     * Пакетная обработка на одном снимке модели, ответы - в порядке заявок. Повторы берутся из того же кэша
+     * ответов, что и для одиночных заявок; промахи векторизуются одним блоком, оцениваются и сохраняются в кэш.
+     * Большие пакеты обрабатываются параллельно
+     *
+     * @throws IllegalArgumentException пустой пакет, превышен размер пакета или длина описания
+     */
+    public List<TicketResponse> processBatch(List<TicketRequest> requests) {
+        FeatureToggle.Batch limits = feature.getBatch();
+        if (requests == null || requests.isEmpty()) {
+            throw new IllegalArgumentException("Список заявок пуст");
+        }
+        if (requests.size() > limits.getMaxsize()) {
+            throw new IllegalArgumentException("Слишком много заявок в одном запросе: " + requests.size()
+                    + ", максимум " + limits.getMaxsize());
+        }
+        List<String> descriptions = new ArrayList<>(requests.size());
+        for (int i = 0; i < requests.size(); i++) {
+            String description = requests.get(i) != null ? requests.get(i).getDescription() : null;
+            if (description == null) {
+                throw new IllegalArgumentException("Нет описания у заявки " + i);
+            }
+            if (description.length() > limits.getMaxlength()) {
+                throw new IllegalArgumentException("Описание заявки " + i + " длиннее " + limits.getMaxlength() + " символов");
+            }
+            descriptions.add(description);
+        }
 
-        // Получаем информацию о кластере
-        ClusterProfile profile = clusterProfiler.getProfile(clusterId);
+        ModelData modelData = modelRegistry.require();
+        long version = modelData.getVersion();
+        boolean parallel = descriptions.size() >= limits.getParallelthreshold();
 
-        // Рассчитываем уверенность
-        double confidence = calculateConfidence(features, clusterId);
+        int[][] codes = new int[descriptions.size()][];
+        rows(codes.length, parallel).forEach(i -> codes[i] = vectorizer.termCodes(descriptions.get(i), modelData.getVocabulary()));
 
-        return new TicketResponse(
-                clusterId,
-                profile.getCategoryName(),
-                profile.getRecommendedSolutions(),
-                profile.getExpectedResolutionTime(),
-                confidence
-        );
+        TicketResponse[] responses = new TicketResponse[codes.length];
+        List<Integer> misses = new ArrayList<>();
+        for (int i = 0; i < codes.length; i++) {
+            responses[i] = responseCache.find(version, codes[i], topN(modelData, requests.get(i)));
+            if (responses[i] == null) {
+                misses.add(i);
+            }
+        }
+
+        if (!misses.isEmpty()) {
+            SparseMatrix tf = vectorizer.vectorizeCodes(misses.stream().map(i -> codes[i]).toList(), modelData.getVocabulary());
+            rows(misses.size(), parallel).forEach(row -> {
+                int i = misses.get(row);
+                int top = topN(modelData, requests.get(i));
+                responses[i] = score(modelData, tf, row, top);
+                responseCache.put(version, codes[i], top, responses[i]);
+            });
+        }
+        return List.of(responses);
+    }
+
+    private static IntStream rows(int count, boolean parallel) {
+        IntStream rows = IntStream.range(0, count);
+        return parallel ? rows.parallel() : rows;
     }
 
+    /**
+     * Ответ на заявку по снимку модели. По нормализованному тексту заявки повторы обслуживаются
+     * из кэша без векторизации и оценки
+     */
+    private TicketResponse analyze(ModelData modelData, String description, int top) {
+        int[] codes = vectorizer.termCodes(description, modelData.getVocabulary());
+        return responseCache.get(modelData.getVersion(), codes, top,
+                () -> score(modelData, vectorizer.vectorizeCodes(codes, modelData.getVocabulary()), 0, top));
+    }
 
-    private double calculateConfidence(double[] features, int clusterId) {
-        // Метрика уверенности: расстояние до центра кластера
-        double[] centroid = model.centroids[clusterId];
-        double distance = 0.0;
+    /**
+     * Запрошенное число кандидатов, не больше числа кластеров; 0 - кандидаты не нужны
+     */
+    private static int topN(ModelData modelData, TicketRequest request) {
+        Integer topN = request.getTopN();
+        if (topN == null || topN <= 0) {
+            return 0;
+        }
+        return Math.min(topN, modelData.getModel().k);
+    }
 
-        for (int i = 0; i < features.length; i++) {
-            distance += Math.pow(features[i] - centroid[i], 2);
+    /**
+     * Оценка одной TF строки: ближайший центроид, профиль кластера и уверенность.
+     * Без проекции заявка остаётся разреженной строкой, с проекцией проецируются только её ненулевые элементы.
+     * При top > 0 в ответ добавляются top кандидатов и отрыв, посчитанные в том же проходе по центроидам
+     */
+    private TicketResponse score(ModelData modelData, SparseMatrix tf, int row, int top) {
+        FeatureMatrix query = tf;
+        Projection projection = modelData.getProjection();
+        if (projection != null) {
+            double[] projected = projection.apply(tf, row);
+            query = new DenseMatrix(projected.length, new double[][]{projected});
+            row = 0;
         }
 
-        return Math.max(0, 1 - Math.sqrt(distance));
+        CentroidScorer.Prediction prediction = modelData.scorer().predict(query, row, top);
+        ClusterProfile profile = modelData.getClusterProfiles().getProfile(prediction.getClusterId());
+
+        Double margin = null;
+        List<ClusterCandidate> candidates = null;
+        if (top > 0) {
+            margin = Double.isNaN(prediction.getMargin()) ? null : prediction.getMargin();
+            candidates = new ArrayList<>(prediction.getCandidates().length);
+            for (int i = 0; i < prediction.getCandidates().length; i++) {
+                int clusterId = prediction.getCandidates()[i];
+                candidates.add(new ClusterCandidate(clusterId,
+                        modelData.getClusterProfiles().getProfile(clusterId).getCategoryName(),
+                        prediction.getScores()[i]));
+            }
+        }
+
+        return new TicketResponse(
+                prediction.getClusterId(),
+                profile.getCategoryName(),
+                profile.getRecommendedSolutions(),
+                profile.getExpectedResolutionTime(),
+                prediction.getConfidence(),
+                margin,
+                candidates
+        );
     }
 
 }
@@ -0,0 +1,135 @@
+package ru.itmo.alfa.comand4.domain.ticked.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.stereotype.Component;
+import ru.itmo.alfa.comand4.configuration.FeatureToggle;
+import ru.itmo.alfa.comand4.domain.ticked.model.TicketResponse;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Кэш ответов на повторяющиеся заявки.
+ * <p>
+ * Ключ - версия модели и последовательность кодов терминов заявки (текст после токенизации, стоп-слов
+ * и стемминга): заявки, отличающиеся только пунктуацией, регистром или незнакомыми словами, дают
+ * один ключ; в ключ входит и число запрошенных кандидатов. Вытеснение W-TinyLFU (Caffeine) с ограничением по примерному объёму записей в байтах.
+ * При появлении более новой версии модели кэш очищается; записи старой версии и так не находятся из-за версии
+ * в ключе, а ответы по устаревшему снимку не кэшируются.
+ * Метрики: cache.gets (hit/miss), cache.evictions, cache.size с тегом cache=ticket.responses.
+ */
+@Component
+public class TicketResponseCache {
+
+    private final Cache<Key, TicketResponse> cache;
+    private final AtomicLong modelVersion = new AtomicLong(-1);
+    private final boolean enabled;
+
+    public TicketResponseCache(FeatureToggle feature, MeterRegistry meterRegistry) {
+        FeatureToggle.Cache settings = feature.getCache();
+        this.enabled = settings.getEnabled();
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(settings.getMaxbytes())
+                .weigher(TicketResponseCache::weigh)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "ticket.responses");
+    }
+
+    /**
+     * Ответ из кэша или вычисленный заново (и сохранённый)
+     *
+     * @param codes коды терминов заявки; массив не должен изменяться после вызова
+     */
+    public TicketResponse get(long version, int[] codes, int topN, Supplier<TicketResponse> compute) {
+        if (!cacheable(version)) {
+            return compute.get();
+        }
+        return cache.get(new Key(version, codes, topN), key -> compute.get());
+    }
+
+    /**
+     * Ответ из кэша без вычисления (пакетная обработка вычисляет промахи одним блоком, см. {@link #put})
+     *
+     * @return ответ или null, если его нет в кэше
+     */
+    public TicketResponse find(long version, int[] codes, int topN) {
+        return cacheable(version) ? cache.getIfPresent(new Key(version, codes, topN)) : null;
+    }
+
+    /**
+     * Сохранение ответа, вычисленного после промаха {@link #find}
+     *
+     * @param codes коды терминов заявки; массив не должен изменяться после вызова
+     */
+    public void put(long version, int[] codes, int topN, TicketResponse response) {
+        if (cacheable(version)) {
+            cache.put(new Key(version, codes, topN), response);
+        }
+    }
+
+    /**
+     * Кэшируются ли ответы по снимку этой версии.
+     * Кэш очищается один раз при появлении более новой версии; запросы, ещё работающие
+     * со старым снимком во время подмены, вычисляются без кэша и его не очищают
+     */
+    private boolean cacheable(long version) {
+        if (!enabled) {
+            return false;
+        }
+        long cached = modelVersion.get();
+        while (version > cached) {
+            if (modelVersion.compareAndSet(cached, version)) {
+                cache.invalidateAll();
+                cached = version;
+            } else {
+                cached = modelVersion.get();
+            }
+        }
+        return version == cached;
+    }
+
+    /**
+     * Примерный объём записи в байтах: ключ с массивом кодов и строки ответа
+     */
+    private static int weigh(Key key, TicketResponse response) {
+        long bytes = 96 + 4L * key.codes.length + 2L * response.getCategory().length();
+        for (String solution : response.getRecommendedSolutions()) {
+            bytes += 48 + 2L * solution.length();
+        }
+        if (response.getCandidates() != null) {
+            // Строки категорий кандидатов общие с профилями кластеров
+            bytes += 32 + 40L * response.getCandidates().size();
+        }
+        return (int) Math.min(Integer.MAX_VALUE, bytes);
+    }
+
+    private static final class Key {
+
+        private final long version;
+        private final int[] codes;
+        private final int topN;
+        private final int hash;
+
+        Key(long version, int[] codes, int topN) {
+            this.version = version;
+            this.codes = codes;
+            this.topN = topN;
+            this.hash = 31 * (31 * Long.hashCode(version) + topN) + Arrays.hashCode(codes);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Key key && key.version == version && key.topN == topN && key.hash == hash && Arrays.equals(key.codes, codes);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
@@ -0,0 +1,140 @@
+package ru.itmo.alfa.comand4.domain.ticked.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.springframework.stereotype.Service;
+import ru.itmo.alfa.comand4.configuration.FeatureToggle;
+import ru.itmo.alfa.comand4.core.model.ModelData;
+import ru.itmo.alfa.comand4.domain.ticked.model.TicketRequest;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Map;
+
+/**
+ * Потоковая классификация заявок в формате NDJSON: строка запроса - одна заявка, строка ответа - её результат
+ * (или {"error": ...}), порядок и количество строк совпадают.
+ * <p>
+ * Чтение и запись блокирующие: пока клиент не забирает ответы, запись блокируется и следующие строки
+ * не читаются, поэтому обратное давление работает без очередей. В памяти - только текущая строка,
+ * её длина ограничена; вывод сбрасывается клиенту, когда входных данных в буфере больше нет.
+ * <p>
+ * Все строки потока оцениваются на одном снимке модели, взятом до записи первой строки ответа: если модель
+ * не готова, клиент получает обычный ответ 503. Ошибка при оценке строки даёт строку ошибки, поток продолжается.
+ */
+@Service
+public class TicketStreamProcessor {
+
+    private static final int EOF = -1;
+    private static final int TOO_LONG = -2;
+
+    private final FeatureToggle feature;
+    private final TicketProcessor ticketProcessor;
+    private final ObjectReader requestReader;
+    private final ObjectWriter responseWriter;
+
+    public TicketStreamProcessor(FeatureToggle feature, TicketProcessor ticketProcessor, ObjectMapper objectMapper) {
+        this.feature = feature;
+        this.ticketProcessor = ticketProcessor;
+        this.requestReader = objectMapper.readerFor(TicketRequest.class);
+        // Поток ответа не закрывается и не сбрасывается после каждой строки
+        this.responseWriter = objectMapper.writer()
+                .without(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+    }
+
+    /**
+     * @return количество обработанных строк
+     * @throws ru.itmo.alfa.comand4.core.service.ModelNotReadyException модель ещё не обучена (до записи ответа)
+     */
+    public long process(BufferedReader in, Writer out) throws IOException {
+        ModelData modelData = ticketProcessor.snapshot();
+        FeatureToggle.Batch limits = feature.getBatch();
+        StringBuilder line = new StringBuilder();
+        long start = System.nanoTime();
+        long count = 0;
+
+        for (int length; (length = readLine(in, line, limits.getMaxline())) != EOF; ) {
+            if (length == 0) {
+                continue;
+            }
+
+            Object result;
+            if (length == TOO_LONG) {
+                result = error("Строка длиннее " + limits.getMaxline() + " символов");
+            } else {
+                result = classify(modelData, line, limits);
+            }
+            responseWriter.writeValue(out, result);
+            out.write('\n');
+            count++;
+
+            // Сбрасываем ответы перед чтением, которое может заблокироваться
+            if (!in.ready()) {
+                out.flush();
+            }
+        }
+        out.flush();
+
+        System.out.printf("Потоковая обработка: %d заявок за %d мс%n", count, (System.nanoTime() - start) / 1_000_000);
+        return count;
+    }
+
+    private Object classify(ModelData modelData, CharSequence line, FeatureToggle.Batch limits) {
+        TicketRequest request;
+        try {
+            request = requestReader.readValue(line.toString());
+        } catch (JsonProcessingException e) {
+            return error("Некорректный JSON: " + e.getOriginalMessage());
+        }
+
+        if (request == null || request.getDescription() == null) {
+            return error("Нет описания заявки");
+        }
+        if (request.getDescription().length() > limits.getMaxlength()) {
+            return error("Описание заявки длиннее " + limits.getMaxlength() + " символов");
+        }
+        try {
+            return ticketProcessor.processNewTicket(modelData, request);
+        } catch (RuntimeException e) {
+            return error("Ошибка обработки заявки: " + e.getMessage());
+        }
+    }
+
+    private static Map<String, String> error(String message) {
+        return Map.of("error", message);
+    }
+
+    /**
+     * Чтение строки не длиннее limit символов; остаток слишком длинной строки пропускается
+     *
+     * @return длина строки (без перевода строки), {@link #TOO_LONG} или {@link #EOF}
+     */
+    private static int readLine(BufferedReader in, StringBuilder line, int limit) throws IOException {
+        line.setLength(0);
+        boolean tooLong = false;
+        int c;
+        while ((c = in.read()) != -1 && c != '\n') {
+            if (line.length() < limit) {
+                line.append((char) c);
+            } else {
+                tooLong = true;
+            }
+        }
+        if (c == -1 && line.isEmpty() && !tooLong) {
+            return EOF;
+        }
+        if (tooLong) {
+            return TOO_LONG;
+        }
+        if (!line.isEmpty() && line.charAt(line.length() - 1) == '\r') {
+            line.setLength(line.length() - 1);
+        }
+        return line.chars().allMatch(Character::isWhitespace) ? 0 : line.length();
+    }
+}
@@ -0,0 +1,84 @@
+package ru.itmo.alfa.comand4.domain.update.controller;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.AllArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import ru.itmo.alfa.comand4.core.model.ModelData;
+import ru.itmo.alfa.comand4.core.service.ModelDataService;
+import ru.itmo.alfa.comand4.core.service.ModelRegistry;
+import ru.itmo.alfa.comand4.domain.update.model.ModelStatus;
+import ru.itmo.alfa.comand4.domain.update.model.ModelUpdateRequest;
+import ru.itmo.alfa.comand4.domain.update.service.ModelUpdateService;
+
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/model")
+@AllArgsConstructor
+@Tag(name = "Model Update", description = "API для пополнения и переобучения модели")
+public class ModelUpdateController {
+
+    private final ModelUpdateService updateService;
+    private final ModelDataService modelDataService;
+    private final ModelRegistry modelRegistry;
+
+    @Operation(summary = "Состояние модели", description = "Версия текущего снимка модели и признак фонового переобучения.")
+    @GetMapping
+    public ResponseEntity<ModelStatus> status() {
+        return ResponseEntity.ok(currentStatus());
+    }
+
+    @Operation(
+            summary = "Переобучение модели",
+            description = "Запускает полное переобучение в фоне. Запросы обслуживаются текущей моделью до атомарной подмены снимка."
+    )
+    @ApiResponse(responseCode = "202", description = "Переобучение запущено или уже выполняется")
+    @PostMapping("/retrain")
+    public ResponseEntity<ModelStatus> retrain() {
+        modelDataService.retrainAsync();
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(currentStatus());
+    }
+
+    @Operation(
+            summary = "Инкрементальное обновление модели",
+            description = "Сдвигает центроиды к новым обращениям, пополняет документные частоты и профили кластеров без переобучения."
+    )
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Модель обновлена"),
+            @ApiResponse(responseCode = "400", description = "Пустой или слишком большой список обращений"),
+            @ApiResponse(responseCode = "409", description = "Идёт переобучение модели, обновление не применено")
+    })
+    @PostMapping("/update")
+    public ResponseEntity<?> update(@RequestBody ModelUpdateRequest request) {
+        try {
+            return ResponseEntity.ok(updateService.update(request.getTickets()));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    private ModelStatus currentStatus() {
+        ModelData modelData = modelRegistry.current();
+        if (modelData == null) {
+            return new ModelStatus(false, 0, 0, 0, modelDataService.isRetraining());
+        }
+        return new ModelStatus(
+                true,
+                modelData.getVersion(),
+                modelData.getModel().k,
+                modelData.getDocumentFrequencies().documents(),
+                modelDataService.isRetraining()
+        );
+    }
+}
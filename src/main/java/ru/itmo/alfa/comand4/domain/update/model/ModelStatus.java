@@ -0,0 +1,26 @@
+package ru.itmo.alfa.comand4.domain.update.model;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+@Getter
+@AllArgsConstructor
+@Schema(description = "Состояние текущего снимка модели")
+public class ModelStatus {
+
+    @Schema(description = "Опубликована ли хотя бы одна модель")
+    private final boolean ready;
+
+    @Schema(description = "Версия опубликованного снимка, 0 - модели ещё нет")
+    private final long version;
+
+    @Schema(description = "Количество кластеров")
+    private final int clusters;
+
+    @Schema(description = "Количество документов в таблице документных частот")
+    private final int documents;
+
+    @Schema(description = "Идёт ли фоновое переобучение")
+    private final boolean retraining;
+}
@@ -0,0 +1,14 @@
+package ru.itmo.alfa.comand4.domain.update.model;
+
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.List;
+
+@Getter
+@Setter
+@NoArgsConstructor
+public class ModelUpdateRequest {
+    private List<ResolvedTicket> tickets;
+}
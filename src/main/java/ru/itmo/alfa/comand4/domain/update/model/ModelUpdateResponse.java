@@ -0,0 +1,25 @@
+package ru.itmo.alfa.comand4.domain.update.model;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+
+@Getter
+@AllArgsConstructor
+@Schema(description = "Результат инкрементального обновления модели")
+public class ModelUpdateResponse {
+
+    @Schema(description = "Количество учтённых обращений")
+    private final int processed;
+
+    @Schema(description = "Кластеры, в которые попали обращения (в порядке запроса)")
+    private final List<Integer> clusterIds;
+
+    @Schema(description = "Количество документов в таблице документных частот после обновления")
+    private final int totalDocuments;
+
+    @Schema(description = "Время обновления, мс")
+    private final double elapsedMs;
+}
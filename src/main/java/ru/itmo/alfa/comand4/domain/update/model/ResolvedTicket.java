@@ -0,0 +1,25 @@
+package ru.itmo.alfa.comand4.domain.update.model;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@Schema(description = "Решённое обращение для пополнения модели")
+public class ResolvedTicket {
+
+    @Schema(description = "Текст обращения клиента", requiredMode = Schema.RequiredMode.REQUIRED)
+    private String customerIssue;
+
+    @Schema(description = "Ответ технической поддержки", requiredMode = Schema.RequiredMode.REQUIRED)
+    private String techResponse;
+
+    @Schema(description = "Время решения в минутах", requiredMode = Schema.RequiredMode.REQUIRED)
+    private Integer resolutionTime;
+
+    @Schema(description = "Категория обращения")
+    private String issueCategory;
+}
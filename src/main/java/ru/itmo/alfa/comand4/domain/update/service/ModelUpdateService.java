@@ -0,0 +1,204 @@
+package ru.itmo.alfa.comand4.domain.update.service;
+
+import org.springframework.stereotype.Service;
+import ru.itmo.alfa.comand4.configuration.FeatureToggle;
+import ru.itmo.alfa.comand4.core.dto.SupportTicket;
+import ru.itmo.alfa.comand4.core.model.ClusterAggregate;
+import ru.itmo.alfa.comand4.core.model.ClusterProfiles;
+import ru.itmo.alfa.comand4.core.model.DocumentFrequencies;
+import ru.itmo.alfa.comand4.core.model.FeatureMatrix;
+import ru.itmo.alfa.comand4.core.model.ModelData;
+import ru.itmo.alfa.comand4.core.model.SparseMatrix;
+import ru.itmo.alfa.comand4.core.service.ModelDataService;
+import ru.itmo.alfa.comand4.core.service.ModelRegistry;
+import ru.itmo.alfa.comand4.core.util.clustering.ClusterProfiler;
+import ru.itmo.alfa.comand4.core.util.clustering.SphericalKMeans;
+import ru.itmo.alfa.comand4.core.util.clustering.VectorKernels;
+import ru.itmo.alfa.comand4.core.util.morfology.Vocabulary;
+import ru.itmo.alfa.comand4.core.util.morfology.VectorizeText;
+import ru.itmo.alfa.comand4.domain.update.model.ModelUpdateResponse;
+import ru.itmo.alfa.comand4.domain.update.model.ResolvedTicket;
+import smile.clustering.KMeans;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Инкрементальное обновление модели новыми решёнными обращениями без переобучения.
+ * <p>
+ * Для каждого обращения: TF строка -> пополнение документных частот -> TF-IDF по текущему IDF ->
+ * ближайший центроид, который сдвигается к обращению (скользящее среднее или постоянный шаг decay).
+ * Профили затронутых кластеров пересчитываются из накопленной статистики.
+ * Опубликованный снимок не меняется: изменяемые части копируются, результат публикуется новым снимком.
+ * Матрица признаков корпуса и назначения model.y не меняются: метрики качества относятся к обучающему корпусу.
+ */
+@Service
+public class ModelUpdateService {
+
+    private final FeatureToggle feature;
+    private final ModelRegistry modelRegistry;
+    private final Vocabulary vocabularyService;
+    private final VectorizeText vectorizer;
+    private final ClusterProfiler clusterProfiler;
+    private final ModelDataService modelDataService;
+
+    public ModelUpdateService(FeatureToggle feature, ModelRegistry modelRegistry, Vocabulary vocabularyService,
+                              VectorizeText vectorizer, ClusterProfiler clusterProfiler, ModelDataService modelDataService) {
+        this.feature = feature;
+        this.modelRegistry = modelRegistry;
+        this.vocabularyService = vocabularyService;
+        this.vectorizer = vectorizer;
+        this.clusterProfiler = clusterProfiler;
+        this.modelDataService = modelDataService;
+    }
+
+    /**
+     * Обновления выполняются по одному и публикуются под {@link ModelDataService#withoutRetraining}:
+     * переобучение не может начаться между проверкой и публикацией
+     *
+     * @throws IllegalStateException идёт переобучение: его результат заменит модель, и обновление было бы потеряно
+     */
+    public synchronized ModelUpdateResponse update(List<ResolvedTicket> resolved) {
+        if (resolved == null || resolved.isEmpty()) {
+            throw new IllegalArgumentException("Список обращений пуст");
+        }
+        if (resolved.size() > feature.getUpdate().getMaxbatch()) {
+            throw new IllegalArgumentException("Слишком много обращений в одном обновлении: " + resolved.size()
+                    + ", максимум " + feature.getUpdate().getMaxbatch());
+        }
+
+        long start = System.nanoTime();
+        List<SupportTicket> tickets = resolved.stream().map(ModelUpdateService::toSupportTicket).toList();
+
+        // Ключевые слова профилей считаются по тем же токенам, что и при обучении
+        List<List<String>> tokens = vocabularyService.tokenize(tickets.stream()
+                .map(SupportTicket::getCustomerIssue)
+                .toList());
+
+        int[] assignments = new int[tickets.size()];
+        ModelData updated = modelDataService.withoutRetraining(() -> {
+            ModelData published;
+            do {
+                ModelData base = modelRegistry.require();
+                published = modelRegistry.publish(base, apply(base, tickets, tokens, assignments));
+            } while (published == null);
+            return published;
+        });
+
+        double elapsed = (System.nanoTime() - start) / 1e6;
+        int documents = updated.getDocumentFrequencies().documents();
+        System.out.printf("Инкрементальное обновление: %d обращений за %.2f мс, документов в корпусе %d, версия модели %d%n",
+                tickets.size(), elapsed, documents, updated.getVersion());
+
+        List<Integer> clusterIds = new ArrayList<>(assignments.length);
+        for (int clusterId : assignments) {
+            clusterIds.add(clusterId);
+        }
+        return new ModelUpdateResponse(tickets.size(), clusterIds, documents, elapsed);
+    }
+
+    /**
+     * Новый снимок: base с обновлёнными центроидами, документными частотами и профилями
+     */
+    private ModelData apply(ModelData base, List<SupportTicket> tickets, List<List<String>> tokens, int[] assignments) {
+        KMeans model = base.getModel();
+        // Одна копия частот на пакет: копирование таблицы на каждое обращение стоило бы O(пакет × словарь)
+        DocumentFrequencies.Builder frequencies = base.getDocumentFrequencies().toBuilder();
+
+        // Строки центроидов заменяются целиком, поэтому достаточно копии внешних массивов
+        double[][] centroids = model.centroids.clone();
+        float[][] centroids32 = base.getCentroids32() != null ? base.getCentroids32().clone() : null;
+
+        // Нормы центроидов считаются один раз на пакет и обновляются только у сдвинутого центроида
+        double[] squaredNorms = new double[model.k];
+        for (int c = 0; c < model.k; c++) {
+            squaredNorms[c] = VectorKernels.squaredNorm(centroids[c]);
+        }
+
+        // Количество документов, учтённых в каждом центроиде
+        long[] clusterCounts = new long[model.k];
+        for (int c = 0; c < model.k; c++) {
+            ClusterAggregate aggregate = base.getClusterProfiles().getAggregate(c);
+            clusterCounts[c] = aggregate != null ? aggregate.tickets() : 0;
+        }
+
+        for (int i = 0; i < tickets.size(); i++) {
+            SparseMatrix tf = vectorizer.vectorizeRow(tickets.get(i).getCustomerIssue(), base.getVocabulary());
+            frequencies.add(tf, 0);
+
+            FeatureMatrix row = frequencies.weight(tf, 0);
+            if (base.getProjection() != null) {
+                row = base.getProjection().apply((SparseMatrix) row);
+            }
+
+            int clusterId = nearest(row, centroids, squaredNorms, base.isSpherical());
+            double decay = feature.getUpdate().getDecay();
+            double rate = decay > 0 ? decay : 1.0 / ++clusterCounts[clusterId];
+            centroids[clusterId] = moveCentroid(centroids[clusterId], row, rate, base.isSpherical());
+            squaredNorms[clusterId] = VectorKernels.squaredNorm(centroids[clusterId]);
+            if (centroids32 != null) {
+                centroids32[clusterId] = VectorKernels.toFloat(centroids[clusterId]);
+            }
+            assignments[i] = clusterId;
+        }
+
+        ClusterProfiles clusterProfiles = clusterProfiler.update(base.getClusterProfiles(), tickets, tokens, assignments);
+
+        return base.withModel(new KMeans(model.distortion, centroids, model.y))
+                .withCentroids32(centroids32)
+                .withDocumentFrequencies(frequencies.build())
+                .withClusterProfiles(clusterProfiles);
+    }
+
+    private int nearest(FeatureMatrix row, double[][] centroids, double[] squaredNorms, boolean spherical) {
+        if (spherical) {
+            return SphericalKMeans.nearest(row, 0, centroids, new double[1]);
+        }
+
+        int clusterId = 0;
+        double nearest = Double.MAX_VALUE;
+        for (int c = 0; c < centroids.length; c++) {
+            double distance = row.squaredDistance(0, centroids[c], squaredNorms[c]);
+            if (distance < nearest) {
+                nearest = distance;
+                clusterId = c;
+            }
+        }
+        return clusterId;
+    }
+
+    /**
+     * Сдвиг центроида к документу: c' = (1 - rate) c + rate x (новый массив)
+     */
+    private double[] moveCentroid(double[] previous, FeatureMatrix row, double rate, boolean spherical) {
+        double[] centroid = previous.clone();
+        for (int j = 0; j < centroid.length; j++) {
+            centroid[j] *= 1.0 - rate;
+        }
+        row.addTo(0, centroid, rate);
+
+        if (spherical) {
+            double norm = Math.sqrt(VectorKernels.squaredNorm(centroid));
+            if (norm > 0) {
+                for (int j = 0; j < centroid.length; j++) {
+                    centroid[j] /= norm;
+                }
+            }
+        }
+        return centroid;
+    }
+
+    private static SupportTicket toSupportTicket(ResolvedTicket ticket) {
+        if (ticket.getCustomerIssue() == null || ticket.getTechResponse() == null || ticket.getResolutionTime() == null) {
+            throw new IllegalArgumentException("У обращения должны быть заданы customerIssue, techResponse и resolutionTime");
+        }
+        return new SupportTicket(new String[]{
+                "",
+                ticket.getCustomerIssue(),
+                ticket.getTechResponse(),
+                ticket.getResolutionTime() + " minutes",
+                ticket.getIssueCategory() != null ? ticket.getIssueCategory() : "Unknown",
+                ""
+        });
+    }
+}